@@ -16,6 +16,7 @@ plugins {
     id("net.ltgt.errorprone") version "2.0.2"
     id("com.github.johnrengelman.shadow") version "7.1.2"
     id("fr.xpdustry.toxopid") version "3.1.0"
+    id("me.champeau.jmh") version "0.6.8"
 }
 
 val metadata = ModMetadata.fromJson(file("plugin.json").readText())
@@ -67,7 +68,7 @@ tasks.withType(JavaCompile::class.java).configureEach {
             "InlineMeSuggester",
             "EmptyCatch"
         )
-        if (!name.contains("test", true)) {
+        if (!name.contains("test", true) && !name.contains("jmh", true)) {
             check("NullAway", CheckSeverity.ERROR)
             option("NullAway:AnnotatedPackages", "fr.xpdustry.router")
             option("NullAway:TreatGeneratedAsUnannotated", true)
@@ -75,6 +76,16 @@ tasks.withType(JavaCompile::class.java).configureEach {
     }
 }
 
+// Mindustry is provided by the server, the benchmarks need it at runtime
+configurations.jmhImplementation {
+    extendsFrom(configurations.compileOnly.get())
+}
+
+jmh {
+    jmhVersion.set("1.36")
+    profilers.add("gc")
+}
+
 /*
 val downloadDistributor = tasks.register<GithubArtifactDownload>("downloadDistributor") {
     user.set("Xpdustry")
@@ -0,0 +1,118 @@
+/*
+ * Router, a plugin for sharing schematics.
+ *
+ * Copyright (C) 2022 Xpdustry
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package fr.xpdustry.router;
+
+import arc.math.geom.Point2;
+import java.util.concurrent.TimeUnit;
+import mindustry.Vars;
+import mindustry.content.Blocks;
+import mindustry.core.GameState;
+import mindustry.gen.Player;
+import mindustry.net.Administration.ActionType;
+import mindustry.net.Administration.PlayerAction;
+import mindustry.world.Tile;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Run with the gc profiler, gc.alloc.rate.norm must stay at ~0 B/op
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ActionFilterBenchmark {
+
+    @Param({"16", "256", "4096"})
+    public int plots;
+
+    private RouterPlugin router;
+    private RouterLogic logic;
+    private PlayerAction place;
+    private PlayerAction remove;
+    private PlayerAction denied;
+    private PlayerAction configure;
+
+    @Setup
+    public void setup() {
+        BenchmarkSupport.loadContent();
+        Vars.state.set(GameState.State.playing);
+        Vars.state.rules.tags.put(RouterPlugin.ROUTER_ACTIVE_KEY, "true");
+        // The rate limiter would drop most of the benchmarked actions
+        RouterConfig.ACTION_RATE.set(0);
+
+        router = new RouterPlugin();
+        logic = new RouterLogic(router);
+        router.getPlotManager().createPlots(BenchmarkSupport.createAreas(plots));
+
+        // Own the last plot, the worst case of the previous linear scan
+        final var player = Player.create();
+        final var owned = router.getPlotManager().findPlotById(100 + plots - 1).orElseThrow();
+        owned.setOwner(player.uuid());
+        final var area = owned.getArea();
+        final var x = area.getTileX() + 16;
+        final var y = area.getTileY() + 16;
+
+        place = new PlayerAction().set(player, ActionType.placeBlock, new Tile(x, y));
+        place.block = Blocks.powerNode;
+        remove = new PlayerAction().set(player, ActionType.breakBlock, new Tile(x, y));
+        final var foreign = BenchmarkSupport.PLOT_SIZE / 2;
+        denied = new PlayerAction().set(player, ActionType.breakBlock, new Tile(foreign, foreign));
+        configure = new PlayerAction()
+                .set(player, ActionType.configure, new Tile(x, y, Blocks.stone, Blocks.air, Blocks.powerNode));
+        configure.config = new Point2[] {new Point2(4, 0), new Point2(-3, 5), new Point2(0, -6)};
+    }
+
+    @Benchmark
+    public boolean placeBlock() {
+        return filter(place);
+    }
+
+    @Benchmark
+    public boolean breakBlock() {
+        return filter(remove);
+    }
+
+    @Benchmark
+    public boolean breakBlockDenied() {
+        return filter(denied);
+    }
+
+    @Benchmark
+    public boolean configure() {
+        return filter(configure);
+    }
+
+    // Drains the revert queue and the journal like the next update would, the synthetic world has no tiles
+    private boolean filter(final PlayerAction action) {
+        final var allowed = logic.filterAction(action);
+        logic.onPluginUpdate();
+        router.getPlotJournal().onPluginUpdate();
+        return allowed;
+    }
+}
@@ -0,0 +1,73 @@
+/*
+ * Router, a plugin for sharing schematics.
+ *
+ * Copyright (C) 2022 Xpdustry
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package fr.xpdustry.router;
+
+import arc.Core;
+import arc.Settings;
+import fr.xpdustry.router.model.PlotArea;
+import java.util.ArrayList;
+import java.util.List;
+import mindustry.Vars;
+import mindustry.core.ContentLoader;
+import mindustry.core.GameState;
+import mindustry.core.World;
+import mindustry.gen.Groups;
+import mindustry.world.Tiles;
+
+// Helpers to run the plugin code headless, without a server
+public final class BenchmarkSupport {
+
+    public static final int PLOT_SIZE = 32;
+    public static final int PLOT_SPACING = PLOT_SIZE + 4;
+
+    private static boolean loaded = false;
+
+    private BenchmarkSupport() {}
+
+    public static synchronized void loadContent() {
+        if (!loaded) {
+            // The router configs are read from the settings
+            Core.settings = new Settings();
+            Vars.content = new ContentLoader();
+            Vars.content.createBaseContent();
+            Groups.init();
+            Vars.state = new GameState();
+            Vars.world = new World();
+            loaded = true;
+        }
+    }
+
+    public static void createWorld(final int width, final int height) {
+        loadContent();
+        final var tiles = new Tiles(width, height);
+        tiles.fill();
+        Vars.world.tiles = tiles;
+    }
+
+    // Lays out the plots in a square grid, separated by roads
+    public static List<PlotArea> createAreas(final int count) {
+        final var columns = (int) Math.ceil(Math.sqrt(count));
+        final var areas = new ArrayList<PlotArea>(count);
+        for (int i = 0; i < count; i++) {
+            areas.add(PlotArea.of(
+                    1 + (i % columns) * PLOT_SPACING, 1 + (i / columns) * PLOT_SPACING, PLOT_SIZE, PLOT_SIZE));
+        }
+        return areas;
+    }
+}
@@ -0,0 +1,126 @@
+/*
+ * Router, a plugin for sharing schematics.
+ *
+ * Copyright (C) 2022 Xpdustry
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package fr.xpdustry.router.map;
+
+import fr.xpdustry.router.BenchmarkSupport;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import mindustry.content.Blocks;
+import mindustry.game.Team;
+import mindustry.world.Tiles;
+import mindustry.world.blocks.environment.Floor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MapGenerationBenchmark {
+
+    // Number of plots per side, split in 4 quarters by the generator
+    @Param({"4", "8", "16", "32"})
+    public int grid;
+
+    private int size;
+    private Floor borderFloor;
+    private Floor plotFloor;
+    private Floor roadFloor;
+
+    @Setup
+    public void setup() {
+        BenchmarkSupport.loadContent();
+        borderFloor = Blocks.darkPanel1.asFloor();
+        plotFloor = Blocks.metalFloor3.asFloor();
+        roadFloor = Blocks.dacite.asFloor();
+        // Same map size as the generator, with its main roads
+        size = (grid * BenchmarkSupport.PLOT_SPACING) + Blocks.coreNucleus.size + 2;
+    }
+
+    @Benchmark
+    public Tiles generate() {
+        final var generator = new SimplePlotMapGenerator(grid / 2, grid / 2, BenchmarkSupport.PLOT_SIZE, 2);
+        final var context = generator.createContext();
+        generator.generate(context);
+        return context.createTiles();
+    }
+
+    @Benchmark
+    public Tiles generateWithClosures() {
+        final var actions = new ArrayList<Function<Tiles, Tiles>>();
+        actions.add(tiles -> {
+            final var created = new Tiles(size, size);
+            created.fill();
+            return created;
+        });
+        actions.add(tiles -> {
+            tiles.forEach(tile -> tile.setFloor(roadFloor));
+            return tiles;
+        });
+        actions.add(tiles -> {
+            tiles.get(size / 2, size / 2).setBlock(Blocks.coreNucleus, Team.sharded);
+            return tiles;
+        });
+        for (int i = 0; i < grid; i++) {
+            for (int j = 0; j < grid; j++) {
+                final var x = 2 + (i * BenchmarkSupport.PLOT_SPACING);
+                final var y = 2 + (j * BenchmarkSupport.PLOT_SPACING);
+                final var total = BenchmarkSupport.PLOT_SIZE + 2;
+                addFloor(actions, x, y, total, total, borderFloor);
+                addFloor(actions, x + 1, y + 1, BenchmarkSupport.PLOT_SIZE, BenchmarkSupport.PLOT_SIZE, plotFloor);
+            }
+        }
+        var tiles = new Tiles(1, 1);
+        for (final var action : actions) {
+            tiles = action.apply(tiles);
+        }
+        return tiles;
+    }
+
+    // The previous implementation, recording a closure per operation and flooring the plots twice
+    private void addFloor(
+            final List<Function<Tiles, Tiles>> actions,
+            final int x,
+            final int y,
+            final int w,
+            final int h,
+            final Floor floor) {
+        actions.add(tiles -> {
+            for (int i = x; i < x + w; i++) {
+                for (int j = y; j < y + h; j++) {
+                    tiles.get(i, j).setFloor(floor);
+                }
+            }
+            return tiles;
+        });
+    }
+}
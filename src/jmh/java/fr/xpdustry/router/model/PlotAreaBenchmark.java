@@ -0,0 +1,136 @@
+/*
+ * Router, a plugin for sharing schematics.
+ *
+ * Copyright (C) 2022 Xpdustry
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package fr.xpdustry.router.model;
+
+import arc.struct.IntSet;
+import arc.struct.Seq;
+import arc.struct.StringMap;
+import fr.xpdustry.router.BenchmarkSupport;
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+import mindustry.Vars;
+import mindustry.content.Blocks;
+import mindustry.game.Schematic;
+import mindustry.game.Schematic.Stile;
+import mindustry.game.Team;
+import mindustry.world.blocks.ConstructBlock.ConstructBuild;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PlotAreaBenchmark {
+
+    @Param({"32", "64", "128"})
+    public int size;
+
+    private PlotArea area;
+
+    @Setup
+    public void setup() {
+        BenchmarkSupport.createWorld(size + 2, size + 2);
+        area = PlotArea.of(1, 1, size, size);
+        // Fill the plot with a mix of 1x1 and 2x2 blocks
+        for (int x = area.getTileX(); x < area.getTileX() + size; x += 2) {
+            for (int y = area.getTileY(); y < area.getTileY() + size; y += 2) {
+                if (((x + y) / 2) % 2 == 0) {
+                    Vars.world.tile(x, y).setBlock(Blocks.mechanicalDrill, Team.sharded, 0);
+                } else {
+                    Vars.world.tile(x, y).setBlock(Blocks.conveyor, Team.sharded, 0);
+                    Vars.world.tile(x + 1, y).setBlock(Blocks.conveyor, Team.sharded, 1);
+                    Vars.world.tile(x, y + 1).setBlock(Blocks.router, Team.sharded, 0);
+                    Vars.world.tile(x + 1, y + 1).setBlock(Blocks.sorter, Team.sharded, 0);
+                }
+            }
+        }
+    }
+
+    @Benchmark
+    public Schematic getSchematic() {
+        return area.getSchematic();
+    }
+
+    @Benchmark
+    public Schematic getSchematicTwoPasses() {
+        return getSchematicTwoPasses(area);
+    }
+
+    // The previous implementation, scanning the area twice
+    private static Schematic getSchematicTwoPasses(final PlotArea area) {
+        int x1 = Integer.MAX_VALUE;
+        int y1 = Integer.MAX_VALUE;
+        int x2 = Integer.MIN_VALUE;
+        int y2 = Integer.MIN_VALUE;
+        var empty = true;
+
+        for (int tx = area.getTileX(); tx < area.getTileX() + area.getTileW(); tx++) {
+            for (int ty = area.getTileY(); ty < area.getTileY() + area.getTileH(); ty++) {
+                final var build = Vars.world.build(tx, ty);
+
+                if (build != null) {
+                    final var block = build instanceof ConstructBuild cons ? cons.current : build.block;
+                    final int top = block.size / 2;
+                    final int bot = block.size % 2 == 1 ? -block.size / 2 : -(block.size - 1) / 2;
+
+                    x1 = Math.min(build.tileX() + bot, x1);
+                    y1 = Math.min(build.tileY() + bot, y1);
+                    x2 = Math.max(build.tileX() + top, x2);
+                    y2 = Math.max(build.tileY() + top, y2);
+                    empty = false;
+                }
+            }
+        }
+
+        if (empty) {
+            return null;
+        }
+
+        final var counted = new IntSet();
+        final var tiles = new ArrayList<Stile>();
+
+        for (int x = area.getTileX(); x < area.getTileX() + area.getTileW(); x++) {
+            for (int y = area.getTileY(); y < area.getTileY() + area.getTileH(); y++) {
+                final var build = Vars.world.build(x, y);
+
+                if (build != null && !counted.contains(build.pos())) {
+                    final var block = build instanceof ConstructBuild cons ? cons.current : build.block;
+                    final var config = build instanceof ConstructBuild cons ? cons.lastConfig : build.config();
+                    tiles.add(
+                            new Stile(block, build.tileX() - x1, build.tileY() - y1, config, (byte) build.rotation));
+                    counted.add(build.pos());
+                }
+            }
+        }
+
+        return new Schematic(Seq.with(tiles), new StringMap(), x2 - x1 + 1, y2 - y1 + 1);
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ * Router, a plugin for sharing schematics.
+ *
+ * Copyright (C) 2022 Xpdustry
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package fr.xpdustry.router.service;
+
+import fr.xpdustry.router.BenchmarkSupport;
+import fr.xpdustry.router.model.Plot;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PlotManagerBenchmark {
+
+    private static final String OWNER = "AAAAAAAAAAAAAAAAAAAAAA==";
+    private static final String MEMBER = "BBBBBBBBBBBBBBBBBBBBBB==";
+
+    @Param({"16", "256", "4096"})
+    public int plots;
+
+    private PlotManager manager;
+    private int lastId;
+    private int x;
+    private int y;
+
+    @Setup
+    public void setup() {
+        BenchmarkSupport.loadContent();
+        manager = new SimplePlotManager();
+        manager.createPlots(BenchmarkSupport.createAreas(plots));
+        lastId = 100 + plots - 1;
+        // An owner with a couple of plots, and a member of one of them
+        for (final var id : new int[] {100, 100 + plots / 2, lastId}) {
+            final var plot = manager.findPlotById(id).orElseThrow();
+            plot.setOwner(OWNER);
+        }
+        manager.findPlotById(lastId).orElseThrow().addMember(MEMBER);
+        final var area = manager.findPlotById(lastId).orElseThrow().getArea();
+        x = area.getTileX() + area.getTileW() / 2;
+        y = area.getTileY() + area.getTileH() / 2;
+    }
+
+    @Benchmark
+    public Optional<Plot> findPlotById() {
+        return manager.findPlotById(lastId);
+    }
+
+    @Benchmark
+    public Plot findPlotAt() {
+        return manager.findPlotAt(x, y);
+    }
+
+    @Benchmark
+    public List<Plot> findPlotsByOwner() {
+        return manager.findPlotsByOwner(OWNER);
+    }
+
+    @Benchmark
+    public List<Plot> findPlotsByTrusted() {
+        return manager.findPlotsByTrusted(MEMBER);
+    }
+
+    @Benchmark
+    public long countPlotsByOwner() {
+        return manager.countPlotsByOwner(OWNER);
+    }
+}
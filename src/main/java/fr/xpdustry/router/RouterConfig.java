@@ -0,0 +1,72 @@
+/*
+ * Router, a plugin for sharing schematics.
+ *
+ * Copyright (C) 2022 Xpdustry
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package fr.xpdustry.router;
+
+import arc.util.Log;
+import mindustry.net.Administration.Config;
+
+public final class RouterConfig {
+
+    public static final Config CLEAR_BATCH_SIZE = new Config(
+            "routerClearBatchSize", "The maximum number of blocks removed per tick when clearing a plot.", 256);
+
+    public static final Config PASTE_BATCH_SIZE = new Config(
+            "routerPasteBatchSize", "The maximum number of blocks placed per tick when pasting a schematic.", 512);
+
+    public static final Config SNAPSHOT_INTERVAL = new Config(
+            "routerSnapshotInterval", "The interval in seconds between plot saves, 0 to only save on exit.", 60);
+
+    public static final Config JOURNAL_SIZE = new Config(
+            "routerJournalSize", "The maximum number of edits remembered per plot for undo and redo.", 256);
+
+    public static final Config EXPAND_THRESHOLD = new Config(
+            "routerExpandThreshold", "The number of free plots under which the map grows, 0 to disable.", 2);
+
+    public static final Config EXPAND_COOLDOWN = new Config(
+            "routerExpandCooldown", "The minimum interval in seconds between two map expansions.", 60);
+
+    public static final Config STATS_INTERVAL = new Config(
+            "routerStatsInterval", "The interval in seconds between stats logs, 0 to disable.", 0);
+
+    public static final Config ACTION_RATE = new Config(
+            "routerActionRate", "The number of actions per second a player can sustain, 0 to disable the limit.", 60);
+
+    public static final Config ACTION_BURST = new Config(
+            "routerActionBurst", "The number of actions a player can send at once before being limited.", 240);
+
+    private RouterConfig() {}
+
+    // A config is added to the server config command when it is created, they are listed here so none is missed
+    static void init() {
+        final Config[] configs = {
+            CLEAR_BATCH_SIZE,
+            PASTE_BATCH_SIZE,
+            SNAPSHOT_INTERVAL,
+            JOURNAL_SIZE,
+            EXPAND_THRESHOLD,
+            EXPAND_COOLDOWN,
+            STATS_INTERVAL,
+            ACTION_RATE,
+            ACTION_BURST
+        };
+        for (final var config : configs) {
+            Log.debug("Router: Config @ = @", config.name, config.get());
+        }
+    }
+}
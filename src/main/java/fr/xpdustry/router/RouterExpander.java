@@ -0,0 +1,105 @@
+/*
+ * Router, a plugin for sharing schematics.
+ *
+ * Copyright (C) 2022 Xpdustry
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package fr.xpdustry.router;
+
+import arc.util.Log;
+import fr.xpdustry.distributor.api.event.EventHandler;
+import fr.xpdustry.distributor.api.plugin.PluginListener;
+import fr.xpdustry.router.event.PlotOwnerChangeEvent;
+import fr.xpdustry.router.map.MapGenerator;
+import fr.xpdustry.router.map.MapLoader;
+import fr.xpdustry.router.map.PlotMapContext;
+import fr.xpdustry.router.map.SimplePlotMapGenerator;
+import fr.xpdustry.router.model.Plot;
+import fr.xpdustry.router.util.WorldSync;
+import mindustry.Vars;
+import mindustry.gen.Call;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * Grows the map with new plots when the free ones are running out, so the server can start with a small map.
+ * An expansion reloads the world of every player, see {@link MapLoader#expand(MapGenerator)}, so two expansions are
+ * always separated by at least {@link RouterConfig#EXPAND_COOLDOWN} seconds.
+ */
+public final class RouterExpander implements PluginListener {
+
+    private final RouterPlugin router;
+    private @Nullable SimplePlotMapGenerator generator = null;
+    private boolean pending = false;
+    private long lastExpansion = 0L;
+
+    public RouterExpander(final RouterPlugin router) {
+        this.router = router;
+    }
+
+    /**
+     * Sets the generator of the current map, used to create the new plots, or {@code null} to disable the expansion.
+     */
+    public void setGenerator(final @Nullable SimplePlotMapGenerator generator) {
+        this.generator = generator;
+    }
+
+    @EventHandler
+    public void onPlotOwnerChange(final PlotOwnerChangeEvent event) {
+        // Not in the middle of an ownership change, the expansion is checked on the next update
+        pending = true;
+    }
+
+    @Override
+    public void onPluginUpdate() {
+        if (!pending) {
+            return;
+        }
+        final var cooldown = RouterConfig.EXPAND_COOLDOWN.num() * 1000L;
+        if (lastExpansion != 0L && System.currentTimeMillis() - lastExpansion < cooldown) {
+            return;
+        }
+        pending = false;
+        final var threshold = RouterConfig.EXPAND_THRESHOLD.num();
+        if (generator != null
+                && threshold > 0
+                && router.isActive()
+                && router.getPlotManager().countFreePlots() < threshold) {
+            expand();
+        }
+    }
+
+    private void expand() {
+        final var generator = this.generator;
+        if (generator == null || !router.isActive()) {
+            return;
+        }
+        final var start = System.currentTimeMillis();
+        final var manager = router.getPlotManager();
+        final var areas = manager.findAllPlots().stream().map(Plot::getArea).toList();
+        final MapGenerator<PlotMapContext> expansion;
+        try {
+            expansion = generator.createExpansion(Vars.world.width(), Vars.world.height(), areas);
+        } catch (final IllegalArgumentException exception) {
+            Log.warn("Router: The map can't grow anymore, @", exception.getMessage());
+            this.generator = null;
+            return;
+        }
+        lastExpansion = start;
+        final var added = manager.addPlots(MapLoader.expand(expansion).getAreas());
+        WorldSync.resyncAll();
+        Log.info("Router: Added @ plots in @ms", added.size(), System.currentTimeMillis() - start);
+        Call.sendMessage("[accent]The map has grown, " + added.size() + " new plots are available.");
+    }
+}
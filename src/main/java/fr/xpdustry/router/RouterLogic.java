@@ -18,22 +18,20 @@
  */
 package fr.xpdustry.router;
 
-import arc.Core;
 import arc.math.geom.Point2;
-import arc.util.Interval;
+import arc.struct.Bits;
+import arc.struct.IntIntMap;
+import arc.struct.IntSeq;
 import arc.util.Time;
 import fr.xpdustry.distributor.api.event.EventHandler;
 import fr.xpdustry.distributor.api.plugin.PluginListener;
-import fr.xpdustry.distributor.api.util.ArcCollections;
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
-import java.util.function.Consumer;
+import fr.xpdustry.router.model.PlayerRegistry;
+import fr.xpdustry.router.service.PlayerSession;
+import fr.xpdustry.router.service.PlotManager;
+import fr.xpdustry.router.util.Metrics;
 import mindustry.Vars;
 import mindustry.game.EventType;
 import mindustry.gen.Call;
-import mindustry.gen.Player;
 import mindustry.net.Administration;
 import mindustry.world.Block;
 import mindustry.world.Tile;
@@ -42,6 +40,7 @@ import mindustry.world.blocks.distribution.MassDriver;
 import mindustry.world.blocks.logic.LogicBlock;
 import mindustry.world.blocks.payloads.PayloadMassDriver;
 import mindustry.world.blocks.power.PowerNode;
+import org.checkerframework.checker.nullness.qual.Nullable;
 
 public final class RouterLogic implements PluginListener {
 
@@ -50,9 +49,12 @@ public final class RouterLogic implements PluginListener {
     To interact with a plot,
     claim it with [cyan]/plot claim <id>[].""";
 
-    // Shows a simple message when a player tries to build for the first time
-    // Why these players can't read the welcome message at the center of the map is beyond me
-    private final Map<String, Interval> warns = new HashMap<>();
+    // Scratch buffers for packed tile positions, actions are always filtered on the main thread
+    private final IntSeq positions = new IntSeq();
+    private final IntSeq links = new IntSeq();
+    // Placed linkable blocks to check on the next tick, the packed position maps to the registry id of the player
+    private final IntSeq reverts = new IntSeq();
+    private final IntIntMap revertOwners = new IntIntMap();
     private final RouterPlugin router;
 
     public RouterLogic(final RouterPlugin router) {
@@ -64,9 +66,17 @@ public final class RouterLogic implements PluginListener {
         Vars.netServer.admins.addActionFilter(this::filterAction);
     }
 
-    @EventHandler
-    public void onPlayerJoin(final EventType.PlayerJoin event) {
-        this.warns.put(event.player.uuid(), new Interval());
+    @Override
+    public void onPluginUpdate() {
+        if (reverts.isEmpty()) {
+            return;
+        }
+        for (int i = 0; i < reverts.size; i++) {
+            final var position = reverts.get(i);
+            revertAutoConfigure(position, revertOwners.get(position, PlayerRegistry.NONE));
+        }
+        reverts.clear();
+        revertOwners.clear();
     }
 
     @EventHandler
@@ -76,82 +86,133 @@ public final class RouterLogic implements PluginListener {
                 .getPlotManager()
                 .findPlotsByTrusted(event.player.uuid())
                 .forEach(plot -> plot.removeMember(event.player.uuid()));
-        this.warns.remove(event.player.uuid());
     }
 
-    private boolean filterAction(final Administration.PlayerAction action) {
+    boolean filterAction(final Administration.PlayerAction action) {
         if (!router.isActive()) {
             return true;
         }
+        final var start = System.nanoTime();
+        Metrics.ACTIONS.increment();
+        final var session = this.router.getPlayerSessions().getSession(action.player);
+        // Macros can send thousands of actions per second, drop them before doing any work
+        if (!session.tryAcquireAction(RouterConfig.ACTION_RATE.num(), RouterConfig.ACTION_BURST.num(), start)) {
+            Metrics.DROPPED_ACTIONS.increment();
+            return false;
+        }
+        final var allowed = checkAction(session, action);
+        Metrics.FILTER.record(start);
+        if (!allowed) {
+            Metrics.DENIED_ACTIONS.increment();
+        }
+        return allowed;
+    }
+
+    private boolean checkAction(final PlayerSession session, final Administration.PlayerAction action) {
+        positions.clear();
         switch (action.type) {
             case placeBlock -> {
-                final List<Point2> positions = new ArrayList<>();
-                action.tile.getLinkedTilesAs(action.block, tile -> positions.add(Point2.unpack(tile.pos())));
-                final var tile = action.tile;
-                final var player = action.player;
-                Core.app.post(() -> revertAutoConfigure(tile, player));
-                return isAllInTrustedPlots(player, positions);
-            }
-            case breakBlock, rotate, withdrawItem, depositItem -> {
-                return isAllInTrustedPlots(action.player, List.of(Point2.unpack(action.tile.pos())));
+                getLinkedTiles(action.tile, action.block, positions);
+                if (isLinkableBlock(action.block)) {
+                    queueRevert(action.tile.pos(), session.getId());
+                }
             }
+            case breakBlock, rotate, withdrawItem, depositItem -> positions.add(action.tile.pos());
             case configure -> {
-                final List<Point2> positions = new ArrayList<>();
                 if (isLinkableBlock(action.tile.block())) {
-                    getLinks(action.tile, action.config, positions::add);
+                    getLinks(action.tile, action.config, positions);
                 }
-                positions.add(Point2.unpack(action.tile.pos()));
-                return isAllInTrustedPlots(action.player, positions);
+                positions.add(action.tile.pos());
             }
             default -> {
                 return true;
             }
         }
+        if (!checkTrustedPlots(session, positions)) {
+            return false;
+        }
+        markDirtyPlots(positions);
+        final var plot = this.router.getPlotManager().findPlotAt(action.tile.x, action.tile.y);
+        if (plot != null) {
+            Metrics.countPlotAction(plot.getId());
+        }
+        if (action.type == Administration.ActionType.placeBlock) {
+            this.router.getPlotJournal().recordPlacement(action.tile, positions);
+        } else if (action.type != Administration.ActionType.withdrawItem
+                && action.type != Administration.ActionType.depositItem) {
+            this.router.getPlotJournal().record(action.tile);
+        }
+        return true;
     }
 
-    @SuppressWarnings("NullAway")
-    private boolean isAllInTrustedPlots(final Player player, final List<Point2> points) {
-        final var plots = this.router.getPlotManager().findPlotsByTrusted(player.uuid());
-        for (final var point : points) {
-            if (plots.stream()
-                    .noneMatch(plot ->
-                            (point.x == -1 || point.y == -1) || plot.getArea().contains(point))) {
-                if (warns.get(player.uuid()).get(Time.toSeconds * 2F)) {
-                    Call.announce(player.con(), WARNING_MESSAGE);
-                }
-                return false;
+    private boolean checkTrustedPlots(final PlayerSession session, final IntSeq positions) {
+        if (isAllInTrustedPlots(this.router.getPlotManager(), session.getTrustedPlots(), positions)) {
+            return true;
+        }
+        // Shows a simple message when a player tries to build for the first time
+        // Why these players can't read the welcome message at the center of the map is beyond me
+        if (session.getWarnings().get(Time.toSeconds * 2F)) {
+            Call.announce(session.getPlayer().con(), WARNING_MESSAGE);
+        }
+        return false;
+    }
+
+    private void markDirtyPlots(final IntSeq positions) {
+        final var manager = this.router.getPlotManager();
+        for (int i = 0; i < positions.size; i++) {
+            final var plot = manager.findPlotAt(Point2.x(positions.get(i)), Point2.y(positions.get(i)));
+            if (plot != null) {
+                manager.markDirty(plot);
             }
         }
-        return true;
     }
 
-    private void revertAutoConfigure(final Tile tile, final Player player) {
-        if (tile.build == null || !isLinkableBlock(tile.block())) {
+    // A block placed twice in the same tick is only checked once, against the latest player
+    private void queueRevert(final int position, final int player) {
+        if (!revertOwners.containsKey(position)) {
+            reverts.add(position);
+        }
+        revertOwners.put(position, player);
+    }
+
+    private void revertAutoConfigure(final int position, final int player) {
+        final var tile = Vars.world.tile(position);
+        if (tile == null || tile.build == null || !isLinkableBlock(tile.block()) || player == PlayerRegistry.NONE) {
             return;
         }
 
-        final List<Point2> filtered = new ArrayList<>();
-        final var plots = this.router.getPlotManager().findPlotsByTrusted(player.uuid());
-        getLinks(tile, tile.build.config(), position -> {
-            if (plots.stream().anyMatch(plot -> plot.getArea().contains(position))) {
-                filtered.add(position);
+        final var manager = this.router.getPlotManager();
+        // The trusted plots of a player who left are already cleared, so all of their links are reverted
+        final var trusted = manager.getTrustedPlots(player);
+        links.clear();
+        if (tile.build instanceof LogicBlock.LogicBuild build) {
+            // The config of a processor is its compressed code, the links are read directly
+            for (final var link : build.links) {
+                links.add(Point2.pack(link.x, link.y));
             }
-        });
+        } else {
+            getLinks(tile, tile.build.config(), links);
+        }
 
-        // Reconfigure only allowed links
-        if (tile.build instanceof LogicBlock.LogicBuild build) {
-            ArcCollections.immutableList(build.links).forEach(link -> build.configure(Point2.pack(link.x, link.y)));
-        } else if (tile.build instanceof PowerNode.PowerNodeBuild build) {
-            build.configure(new Point2[0]);
-        } else if (tile.build instanceof ItemBridge.ItemBridgeBuild build) {
-            build.configure(-1);
-        } else if (tile.build instanceof MassDriver.MassDriverBuild build) {
-            build.configure(-1);
-        } else if (tile.build instanceof PayloadMassDriver.PayloadDriverBuild build) {
-            build.configure(-1);
-        }
-        for (final var position : filtered) {
-            tile.build.configure(position.pack());
+        // Only keep the disallowed links, most placements are entirely inside the plots of the player
+        var disallowed = 0;
+        for (int i = 0; i < links.size; i++) {
+            if (!isInTrustedPlot(manager, trusted, links.get(i))) {
+                links.set(disallowed++, links.get(i));
+            }
+        }
+        if (disallowed == 0) {
+            return;
+        }
+
+        if (tile.build instanceof LogicBlock.LogicBuild || tile.build instanceof PowerNode.PowerNodeBuild) {
+            // Configuring an existing link toggles it off
+            for (int i = 0; i < disallowed; i++) {
+                tile.build.configure(links.get(i));
+            }
+        } else {
+            // Bridges and drivers have a single link
+            tile.build.configure(-1);
         }
     }
 
@@ -163,14 +224,40 @@ public final class RouterLogic implements PluginListener {
                 || block instanceof PayloadMassDriver;
     }
 
-    private void getLinks(final Tile tile, final Object config, final Consumer<Point2> consumer) {
+    static boolean isAllInTrustedPlots(final PlotManager manager, final Bits trusted, final IntSeq positions) {
+        for (int i = 0; i < positions.size; i++) {
+            if (!isInTrustedPlot(manager, trusted, positions.get(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Plot ids start above 0, so tiles outside of plots are never trusted
+    static boolean isInTrustedPlot(final PlotManager manager, final Bits trusted, final int position) {
+        return trusted.get(manager.findPlotIdAt(Point2.x(position), Point2.y(position)));
+    }
+
+    static void getLinkedTiles(final Tile tile, final Block block, final IntSeq positions) {
+        final var offset = block.sizeOffset;
+        for (int dx = 0; dx < block.size; dx++) {
+            for (int dy = 0; dy < block.size; dy++) {
+                positions.add(Point2.pack(tile.x + dx + offset, tile.y + dy + offset));
+            }
+        }
+    }
+
+    // Links set to -1 are unlinking operations, they are always allowed
+    static void getLinks(final Tile tile, final @Nullable Object config, final IntSeq positions) {
         if (config instanceof Integer position) {
-            consumer.accept(Point2.unpack(position));
+            if (position != -1) {
+                positions.add(position);
+            }
         } else if (config instanceof Point2 position) {
-            consumer.accept(new Point2(tile.x + position.x, tile.y + position.y));
-        } else if (config instanceof Point2[] positions) {
-            for (final var position : positions) {
-                consumer.accept(new Point2(tile.x + position.x, tile.y + position.y));
+            positions.add(Point2.pack(tile.x + position.x, tile.y + position.y));
+        } else if (config instanceof Point2[] array) {
+            for (final var position : array) {
+                positions.add(Point2.pack(tile.x + position.x, tile.y + position.y));
             }
         }
     }
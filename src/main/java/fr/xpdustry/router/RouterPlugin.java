@@ -27,27 +27,64 @@ import fr.xpdustry.distributor.api.plugin.AbstractMindustryPlugin;
 import fr.xpdustry.router.command.RouterCommandManager;
 import fr.xpdustry.router.commands.PlotCommands;
 import fr.xpdustry.router.commands.StartCommand;
+import fr.xpdustry.router.commands.StatsCommand;
+import fr.xpdustry.router.model.PlayerRegistry;
+import fr.xpdustry.router.service.PlayerNameCache;
+import fr.xpdustry.router.service.PlayerSessionStore;
+import fr.xpdustry.router.service.PlotJournal;
 import fr.xpdustry.router.service.PlotManager;
+import fr.xpdustry.router.service.PlotRegionStore;
+import fr.xpdustry.router.service.PlotStateStore;
+import fr.xpdustry.router.service.PlotSync;
+import fr.xpdustry.router.service.SchematicStore;
 import fr.xpdustry.router.service.SimplePlotManager;
+import fr.xpdustry.router.service.WorldDataCache;
 import java.util.Locale;
 import mindustry.Vars;
+import org.checkerframework.checker.nullness.qual.Nullable;
 
 public final class RouterPlugin extends AbstractMindustryPlugin {
 
     public static final String ROUTER_ACTIVE_KEY = "xpdustry-router:active";
 
-    private final PlotManager plots = new SimplePlotManager();
+    private final PlayerRegistry players = new PlayerRegistry();
+    private final PlotManager plots = new SimplePlotManager(players);
+    private final PlayerNameCache names = new PlayerNameCache();
+    private final PlayerSessionStore sessions = new PlayerSessionStore(this);
+    private final PlotJournal journal = new PlotJournal(this);
+    private final PlotSync sync = new PlotSync(this);
+    private final WorldDataCache worldData = new WorldDataCache(this);
+    private final RouterExpander expander = new RouterExpander(this);
+    private final StatsCommand stats = new StatsCommand();
     private final ArcCommandManager<CommandSender> serverCommands = new RouterCommandManager(this);
     private final ArcCommandManager<CommandSender> clientCommands = new RouterCommandManager(this);
+    private @Nullable SchematicStore schematics = null;
+    private @Nullable PlotStateStore states = null;
+    private @Nullable PlotRegionStore regions = null;
 
     @Override
     public void onInit() {
+        RouterConfig.init();
+
         final var registry = LocalizationSourceRegistry.create(Locale.ENGLISH);
         registry.registerAll(Locale.ENGLISH, "bundles/bundle", getClass().getClassLoader());
         DistributorProvider.get().getGlobalLocalizationSource().addLocalizationSource(registry);
 
+        this.addListener(sessions);
+        this.schematics = new SchematicStore(getDirectory().resolve("schematics"));
+        this.addListener(schematics);
+        this.states = new PlotStateStore(this, getDirectory().resolve("plots"));
+        this.addListener(states);
+        this.regions = new PlotRegionStore(getDirectory().resolve("regions.bin"));
+        this.addListener(regions);
+        this.addListener(journal);
+        this.addListener(sync);
+        this.addListener(worldData);
+        this.addListener(names);
         this.addListener(new RouterLogic(this));
         this.addListener(new RouterRenderer(this));
+        this.addListener(expander);
+        this.addListener(stats);
     }
 
     @Override
@@ -55,6 +92,7 @@ public final class RouterPlugin extends AbstractMindustryPlugin {
         this.serverCommands.initialize(handler);
         final var annotations = this.serverCommands.createAnnotationParser(CommandSender.class);
         annotations.parse(new StartCommand(this));
+        annotations.parse(stats);
     }
 
     @Override
@@ -69,6 +107,51 @@ public final class RouterPlugin extends AbstractMindustryPlugin {
         return plots;
     }
 
+    public PlayerRegistry getPlayerRegistry() {
+        return players;
+    }
+
+    public PlayerSessionStore getPlayerSessions() {
+        return sessions;
+    }
+
+    public PlayerNameCache getPlayerNames() {
+        return names;
+    }
+
+    public RouterExpander getExpander() {
+        return expander;
+    }
+
+    public SchematicStore getSchematicStore() {
+        if (schematics == null) {
+            throw new IllegalStateException("The schematic store is not initialized yet.");
+        }
+        return schematics;
+    }
+
+    public PlotStateStore getPlotStateStore() {
+        if (states == null) {
+            throw new IllegalStateException("The plot state store is not initialized yet.");
+        }
+        return states;
+    }
+
+    public PlotRegionStore getPlotRegionStore() {
+        if (regions == null) {
+            throw new IllegalStateException("The plot region store is not initialized yet.");
+        }
+        return regions;
+    }
+
+    public PlotJournal getPlotJournal() {
+        return journal;
+    }
+
+    public PlotSync getPlotSync() {
+        return sync;
+    }
+
     public ArcCommandManager<CommandSender> getClientCommands() {
         return clientCommands;
     }
@@ -20,20 +20,22 @@ package fr.xpdustry.router;
 
 import arc.math.geom.Position;
 import arc.math.geom.Vec2;
+import arc.struct.IntMap;
 import arc.util.CommandHandler;
 import arc.util.Interval;
-import arc.util.Strings;
 import arc.util.Time;
 import fr.xpdustry.distributor.api.event.EventHandler;
 import fr.xpdustry.distributor.api.plugin.PluginListener;
+import fr.xpdustry.router.event.PlotOwnerChangeEvent;
+import fr.xpdustry.router.event.PlotsAddEvent;
+import fr.xpdustry.router.event.PlotsCreateEvent;
 import fr.xpdustry.router.model.Plot;
-import java.util.HashSet;
+import fr.xpdustry.router.service.PlayerSession;
+import fr.xpdustry.router.util.Metrics;
 import java.util.List;
-import java.util.Set;
 import mindustry.Vars;
 import mindustry.game.EventType;
 import mindustry.gen.Call;
-import mindustry.gen.Groups;
 import mindustry.gen.WorldLabel;
 
 public final class RouterRenderer implements PluginListener {
@@ -44,7 +46,13 @@ public final class RouterRenderer implements PluginListener {
             A dedicated server for building and sharing [cyan]schematics[].
             Check out the available plot commands with [cyan]/plot help[].""";
 
-    private final Set<String> debuggers = new HashSet<>();
+    private static final float LABEL_DURATION = 5F;
+    private static final long LABEL_REFRESH_MILLIS = 4000L;
+    private static final long LABEL_STABLE_MILLIS = 5000L;
+    // Slightly longer than the render interval, so the label does not blink
+    private static final float CHANGING_LABEL_DURATION = 1.2F;
+
+    private final IntMap<WorldLabel> titles = new IntMap<>();
     private final Interval timer = new Interval();
     private final RouterPlugin router;
 
@@ -54,6 +62,8 @@ public final class RouterRenderer implements PluginListener {
 
     @EventHandler
     public void onPlayEvent(final EventType.PlayEvent event) {
+        // The labels of the previous world are gone
+        this.router.getPlayerSessions().forEach(session -> session.getLabels().clear());
         for (final var core : Vars.state.rules.defaultTeam.cores()) {
             final var tutorial = WorldLabel.create();
             tutorial.text(WELCOME_MESSAGE);
@@ -65,58 +75,93 @@ public final class RouterRenderer implements PluginListener {
         }
     }
 
-    @EventHandler
-    public void onPlayerLeave(final EventType.PlayerLeave event) {
-        this.debuggers.remove(event.player.uuid());
-    }
-
     @Override
     public void onPluginClientCommandsRegistration(final CommandHandler handler) {
         final var manager = router.getClientCommands();
         // TODO Maybe move the debug command elsewhere
         manager.command(manager.commandBuilder("router").literal("debug").handler(context -> {
-            final var uuid = context.getSender().getPlayer().uuid();
-            if (!debuggers.add(uuid)) {
-                debuggers.remove(uuid);
-                context.getSender().sendMessage("Debug mode disabled.");
-            } else {
+            final var sessions = router.getPlayerSessions();
+            final var session = sessions.getSession(context.getSender().getPlayer());
+            sessions.setDebug(session, !session.isDebug());
+            if (session.isDebug()) {
                 context.getSender().sendMessage("Debug mode enabled.");
+            } else {
+                context.getSender().sendMessage("Debug mode disabled.");
             }
         }));
     }
 
+    @EventHandler
+    public void onPlotsCreate(final PlotsCreateEvent event) {
+        this.titles.values().forEach(WorldLabel::remove);
+        this.titles.clear();
+        event.plots().forEach(this::addTitle);
+    }
+
+    @EventHandler
+    public void onPlotsAdd(final PlotsAddEvent event) {
+        event.plots().forEach(this::addTitle);
+    }
+
+    @EventHandler
+    public void onPlotOwnerChange(final PlotOwnerChangeEvent event) {
+        final var title = this.titles.get(event.plot().getId());
+        if (title != null) {
+            title.text(getPlotTitle(event.plot()));
+        }
+    }
+
     @Override
     public void onPluginUpdate() {
-        if (router.isActive() && timer.get(Time.toSeconds)) {
-            for (final var plot : router.getPlotManager().findAllPlots()) {
-                Call.label(
-                        "Plot [cyan]#[]" + plot.getId(),
-                        1F,
-                        plot.getArea().getX() + (plot.getArea().getW() / 2F),
-                        plot.getArea().getY() + (plot.getArea().getH() / 2F));
-
-                final String title;
-                if (plot.getOwner() != null) {
-                    title = "[orange]" + getPlayerLastName(plot.getOwner()) + "'s plot";
-                } else {
-                    title = "[green]Empty plot";
+        final var sessions = router.getPlayerSessions();
+        if (router.isActive() && sessions.hasDebugSessions() && timer.get(Time.toSeconds)) {
+            final var start = System.nanoTime();
+            final var now = Time.millis();
+            final var plots = router.getPlotManager().findAllPlots();
+            sessions.forEach(session -> {
+                if (session.isDebug() && session.getPlayer().con != null) {
+                    renderDebug(session, plots, now);
                 }
+            });
+            Metrics.RENDER.record(start);
+        }
+    }
 
-                Call.label(
-                        title,
-                        1F,
-                        plot.getArea().getX() + (plot.getArea().getW() / 2F),
-                        plot.getArea().getY() + plot.getArea().getH());
-
-                Groups.player.each(player -> debuggers.contains(player.uuid()), player -> getBuildBoundaries(plot)
-                        .forEach(boundary ->
-                                Call.label("[gray]<" + plot.getId() + ">", 1F, boundary.getX(), boundary.getY())));
+    private void renderDebug(final PlayerSession session, final List<Plot> plots, final long now) {
+        for (final var plot : plots) {
+            if (!session.isViewing(plot.getArea())) {
+                continue;
+            }
+            final var boundaries = getBuildBoundaries(plot);
+            for (int i = 0; i < boundaries.size(); i++) {
+                final var boundary = boundaries.get(i);
+                sendLabel(
+                        session,
+                        now,
+                        (plot.getId() * boundaries.size()) + i,
+                        "[gray]<" + plot.getId() + ">",
+                        boundary.getX(),
+                        boundary.getY());
             }
         }
     }
 
-    private String getPlayerLastName(final String uuid) {
-        return Strings.stripColors(Vars.netServer.admins.getInfo(uuid).lastName);
+    private void addTitle(final Plot plot) {
+        final var title = WorldLabel.create();
+        title.text(getPlotTitle(plot));
+        title.x(plot.getArea().getX() + (plot.getArea().getW() / 2F));
+        title.y(plot.getArea().getY() + plot.getArea().getH());
+        title.flags(WorldLabel.flagOutline);
+        title.add();
+        this.titles.put(plot.getId(), title);
+    }
+
+    private String getPlotTitle(final Plot plot) {
+        final var owner = plot.getOwner();
+        final var title = owner != null
+                ? "[orange]" + router.getPlayerNames().getName(owner) + "'s plot"
+                : "[green]Empty plot";
+        return "Plot [cyan]#[]" + plot.getId() + "\n" + title;
     }
 
     private List<Position> getBuildBoundaries(final Plot plot) {
@@ -132,4 +177,28 @@ public final class RouterRenderer implements PluginListener {
                         plot.getArea().getX() + plot.getArea().getW() - Vars.tilesize,
                         plot.getArea().getY() + plot.getArea().getH() - Vars.tilesize));
     }
+
+    // The debug labels are only sent again when they change or are about to expire.
+    // A label can't be removed once sent, so changing labels are sent with a short duration until their text is
+    // stable, otherwise the old text would stay displayed under the new one.
+    private void sendLabel(
+            final PlayerSession session,
+            final long now,
+            final int key,
+            final String text,
+            final float x,
+            final float y) {
+        final var previous = session.getLabels().get(key);
+        if (previous != null && previous.expiration() > now && previous.text().equals(text)) {
+            return;
+        }
+        final var changed = previous == null ? 0L : previous.text().equals(text) ? previous.changed() : now;
+        if (now - changed >= LABEL_STABLE_MILLIS) {
+            Call.label(session.getPlayer().con, text, LABEL_DURATION, x, y);
+            session.getLabels().put(key, new PlayerSession.SentLabel(text, now + LABEL_REFRESH_MILLIS, changed));
+        } else {
+            Call.label(session.getPlayer().con, text, CHANGING_LABEL_DURATION, x, y);
+            session.getLabels().put(key, new PlayerSession.SentLabel(text, now, changed));
+        }
+    }
 }
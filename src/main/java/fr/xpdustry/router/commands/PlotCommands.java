@@ -22,10 +22,11 @@ import cloud.commandframework.annotations.Argument;
 import cloud.commandframework.annotations.CommandDescription;
 import cloud.commandframework.annotations.CommandMethod;
 import fr.xpdustry.distributor.api.command.sender.CommandSender;
+import fr.xpdustry.router.RouterConfig;
 import fr.xpdustry.router.RouterPlugin;
 import fr.xpdustry.router.command.RequireOwnership;
 import fr.xpdustry.router.model.Plot;
-import mindustry.Vars;
+import fr.xpdustry.router.service.SchematicStore;
 import mindustry.gen.Call;
 import mindustry.gen.Groups;
 import mindustry.gen.Player;
@@ -83,8 +84,69 @@ public final class PlotCommands {
     @CommandMethod("clear <plot>")
     @CommandDescription("Clear a plot")
     public void onPlotClear(final CommandSender sender, final @RequireOwnership @Argument("plot") Plot plot) {
-        plot.getArea().clear();
-        Call.sendMessage("[accent]Plot " + plot.getId() + " has been cleared by " + sender.getPlayer().name + ".");
+        final var name = sender.getPlayer().name;
+        // Keep the content of the plot around, so the clear can be undone with /plot restore
+        router.getPlotRegionStore().snapshot(plot);
+        router.getPlotJournal().clear(plot);
+        plot.getArea().clear(RouterConfig.CLEAR_BATCH_SIZE.num(), () -> {
+            router.getPlotManager().markDirty(plot);
+            Call.sendMessage("[accent]Plot " + plot.getId() + " has been cleared by " + name + ".");
+        });
+    }
+
+    @CommandMethod("snapshot <plot>")
+    @CommandDescription("Take a snapshot of a plot, to restore it later.")
+    public void onPlotSnapshot(final CommandSender sender, final @RequireOwnership @Argument("plot") Plot plot) {
+        if (router.getPlotRegionStore().snapshot(plot)) {
+            sender.sendMessage("The plot #" + plot.getId() + " has been saved, restore it with [cyan]/plot restore[].");
+        } else {
+            sender.sendMessage("The plot #" + plot.getId() + " can't be saved right now.");
+        }
+    }
+
+    @CommandMethod("restore <plot>")
+    @CommandDescription("Restore a plot to its last snapshot or clear.")
+    public void onPlotRestore(final CommandSender sender, final @RequireOwnership @Argument("plot") Plot plot) {
+        final var name = sender.getPlayer().name;
+        final var started = router.getPlotRegionStore().restore(plot, RouterConfig.PASTE_BATCH_SIZE.num(), () -> {
+            router.getPlotJournal().clear(plot);
+            router.getPlotManager().markDirty(plot);
+            router.getPlotSync().sync(plot);
+            Call.sendMessage("[accent]Plot " + plot.getId() + " has been restored by " + name + ".");
+        });
+        if (!started) {
+            sender.sendMessage("The plot #" + plot.getId() + " has no snapshot.");
+        }
+    }
+
+    @CommandMethod("undo <plot> [count]")
+    @CommandDescription("Undo the last edits of a plot.")
+    public void onPlotUndo(
+            final CommandSender sender,
+            final @RequireOwnership @Argument("plot") Plot plot,
+            final @Argument(value = "count", defaultValue = "1") int count) {
+        final var undone = router.getPlotJournal()
+                .undo(plot, count, () -> router.getPlotManager().markDirty(plot));
+        if (undone == 0) {
+            sender.sendMessage("There is nothing to undo on the plot #" + plot.getId() + ".");
+        } else {
+            sender.sendMessage("Undoing " + undone + " edits on the plot #" + plot.getId() + ".");
+        }
+    }
+
+    @CommandMethod("redo <plot> [count]")
+    @CommandDescription("Redo the last undone edits of a plot.")
+    public void onPlotRedo(
+            final CommandSender sender,
+            final @RequireOwnership @Argument("plot") Plot plot,
+            final @Argument(value = "count", defaultValue = "1") int count) {
+        final var redone = router.getPlotJournal()
+                .redo(plot, count, () -> router.getPlotManager().markDirty(plot));
+        if (redone == 0) {
+            sender.sendMessage("There is nothing to redo on the plot #" + plot.getId() + ".");
+        } else {
+            sender.sendMessage("Redoing " + redone + " edits on the plot #" + plot.getId() + ".");
+        }
     }
 
     @CommandMethod("trust <plot> <player>")
@@ -136,13 +198,101 @@ public final class PlotCommands {
             builder.append("\n[orange]No bitches ?");
         } else {
             for (final var member : plot.getMembers()) {
-                final var info = Vars.netServer.admins.getInfo(member);
-                builder.append("\n[orange] - [white]").append(info.lastName);
+                builder.append("\n[orange] - [white]").append(router.getPlayerNames().getName(member));
             }
         }
         sender.sendMessage(builder.toString());
     }
 
+    @CommandMethod("save <plot> <name>")
+    @CommandDescription("Save the content of a plot in your schematics.")
+    public void onPlotSave(
+            final CommandSender sender, final @Argument("plot") Plot plot, final @Argument("name") String name) {
+        if (!SchematicStore.NAME_PATTERN.matcher(name).matches()) {
+            sender.sendMessage("The schematic name can only contain up to 32 letters, digits, - and _.");
+            return;
+        }
+        final var schematic = plot.getArea().getSchematic();
+        if (schematic == null) {
+            sender.sendMessage("The plot #" + plot.getId() + " is empty.");
+            return;
+        }
+        router.getSchematicStore()
+                .save(sender.getPlayer().uuid(), name, schematic)
+                .whenComplete((result, error) -> {
+                    if (error != null) {
+                        sender.sendMessage("Failed to save the schematic: " + error.getMessage());
+                    } else {
+                        sender.sendMessage("The plot #" + plot.getId() + " has been saved as [cyan]" + name + "[].");
+                    }
+                });
+    }
+
+    @CommandMethod("load <plot> <name>")
+    @CommandDescription("Replace the content of a plot with one of your schematics.")
+    public void onPlotLoad(
+            final CommandSender sender,
+            final @RequireOwnership @Argument("plot") Plot plot,
+            final @Argument("name") String name) {
+        if (!SchematicStore.NAME_PATTERN.matcher(name).matches()) {
+            sender.sendMessage("You don't have a schematic named [cyan]" + name + "[].");
+            return;
+        }
+        final var player = sender.getPlayer().name;
+        router.getSchematicStore().load(sender.getPlayer().uuid(), name).whenComplete((result, error) -> {
+            if (error != null) {
+                sender.sendMessage("Failed to load the schematic: " + error.getMessage());
+            } else if (result.isEmpty()) {
+                sender.sendMessage("You don't have a schematic named [cyan]" + name + "[].");
+            } else if (result.get().width > plot.getArea().getTileW()
+                    || result.get().height > plot.getArea().getTileH()) {
+                sender.sendMessage("The schematic [cyan]" + name + "[] is too big for the plot.");
+            } else {
+                final var schematic = result.get();
+                router.getPlotJournal().clear(plot);
+                plot.getArea().clear(RouterConfig.CLEAR_BATCH_SIZE.num(), () -> plot.getArea()
+                        .setSchematic(schematic, RouterConfig.PASTE_BATCH_SIZE.num(), () -> {
+                            router.getPlotManager().markDirty(plot);
+                            router.getPlotSync().sync(plot);
+                            Call.sendMessage("[accent]Plot " + plot.getId() + " has been loaded by " + player + ".");
+                        }));
+            }
+        });
+    }
+
+    @CommandMethod("schematics")
+    @CommandDescription("List your saved schematics.")
+    public void onPlotSchematics(final CommandSender sender) {
+        router.getSchematicStore().list(sender.getPlayer().uuid()).whenComplete((result, error) -> {
+            if (error != null) {
+                sender.sendMessage("Failed to list your schematics: " + error.getMessage());
+            } else if (result.isEmpty()) {
+                sender.sendMessage("You don't have any saved schematic.");
+            } else {
+                sender.sendMessage("Your schematics ([cyan]" + result.size() + "/"
+                        + SchematicStore.MAX_SCHEMATICS_PER_PLAYER + "[]):\n" + String.join(", ", result));
+            }
+        });
+    }
+
+    @CommandMethod("schematics delete <name>")
+    @CommandDescription("Delete one of your saved schematics.")
+    public void onPlotSchematicsDelete(final CommandSender sender, final @Argument("name") String name) {
+        if (!SchematicStore.NAME_PATTERN.matcher(name).matches()) {
+            sender.sendMessage("You don't have a schematic named [cyan]" + name + "[].");
+            return;
+        }
+        router.getSchematicStore().delete(sender.getPlayer().uuid(), name).whenComplete((result, error) -> {
+            if (error != null) {
+                sender.sendMessage("Failed to delete the schematic: " + error.getMessage());
+            } else if (!result) {
+                sender.sendMessage("You don't have a schematic named [cyan]" + name + "[].");
+            } else {
+                sender.sendMessage("The schematic [cyan]" + name + "[] has been deleted.");
+            }
+        });
+    }
+
     private boolean isPlayerOnline(final String uuid) {
         return Groups.player.find(p -> p.uuid().equals(uuid)) != null;
     }
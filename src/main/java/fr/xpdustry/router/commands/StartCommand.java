@@ -34,6 +34,7 @@ import mindustry.Vars;
 import mindustry.content.Blocks;
 import mindustry.game.Gamemode;
 import mindustry.game.Rules;
+import org.checkerframework.checker.nullness.qual.Nullable;
 
 public final class StartCommand implements PluginListener {
 
@@ -46,7 +47,13 @@ public final class StartCommand implements PluginListener {
     @CommandPermission("fr.xpdustry.router.start")
     @CommandMethod("router start")
     @CommandDescription("Start hosting a router server.")
-    public void onRouterStart(final CommandSender sender, final @Flag(value = "force", aliases = "f") boolean force) {
+    public void onRouterStart(
+            final CommandSender sender,
+            final @Flag(value = "force", aliases = "f") boolean force,
+            final @Flag(value = "plots-x", description = "Plots per quarter along x.") @Nullable Integer plotsX,
+            final @Flag(value = "plots-y", description = "Plots per quarter along y.") @Nullable Integer plotsY,
+            final @Flag(value = "plot-size", description = "The size of the plots.") @Nullable Integer plotSize,
+            final @Flag(value = "road-size", description = "The size of the roads.") @Nullable Integer roadSize) {
         if (!force && Vars.state.isPlaying()) {
             final var message = "A game is already running![white] If you want to start router anyway, "
                     + "use [accent]/router start --force";
@@ -57,11 +64,32 @@ public final class StartCommand implements PluginListener {
             return;
         }
 
-        sender.sendMessage("Starting router server...");
+        final var countX = plotsX != null ? plotsX : SimplePlotMapGenerator.DEFAULT_PLOTS_PER_QUARTER;
+        final var countY = plotsY != null ? plotsY : SimplePlotMapGenerator.DEFAULT_PLOTS_PER_QUARTER;
+        final var size = plotSize != null ? plotSize : SimplePlotMapGenerator.DEFAULT_PLOT_SIZE;
+        final var road = roadSize != null ? roadSize : SimplePlotMapGenerator.DEFAULT_ROAD_SIZE;
+        // Checked before anything is allocated for the map
+        final var width = SimplePlotMapGenerator.getMapSize(countX, size, road);
+        final var height = SimplePlotMapGenerator.getMapSize(countY, size, road);
+        if (width > SimplePlotMapGenerator.MAX_MAP_SIZE || height > SimplePlotMapGenerator.MAX_MAP_SIZE) {
+            sender.sendWarning("Invalid plot layout: the map would be " + width + "x" + height
+                    + ", the maximum size is " + SimplePlotMapGenerator.MAX_MAP_SIZE + ".");
+            return;
+        }
+
+        final SimplePlotMapGenerator generator;
+        try {
+            generator = new SimplePlotMapGenerator(countX, countY, size, road);
+        } catch (final IllegalArgumentException exception) {
+            sender.sendWarning("Invalid plot layout: " + exception.getMessage());
+            return;
+        }
+
+        sender.sendMessage("Starting router server with " + generator.getPlotCount() + " plots...");
         final PlotMapContext context;
 
         try (final var loader = new MapLoader()) {
-            context = loader.load(new SimplePlotMapGenerator());
+            context = loader.load(generator);
 
             // Apply the rules
             final var rules = new Rules();
@@ -83,6 +111,12 @@ public final class StartCommand implements PluginListener {
 
         final var plots = router.getPlotManager();
         plots.createPlots(context.getAreas());
+        router.getExpander().setGenerator(generator);
         sender.sendMessage("Router server started.");
+        router.getPlotStateStore().restore().thenAccept(count -> {
+            if (count > 0) {
+                sender.sendMessage("Restored " + count + " plots.");
+            }
+        });
     }
 }
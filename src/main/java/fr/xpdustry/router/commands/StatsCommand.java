@@ -0,0 +1,58 @@
+/*
+ * Router, a plugin for sharing schematics.
+ *
+ * Copyright (C) 2022 Xpdustry
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package fr.xpdustry.router.commands;
+
+import arc.util.Interval;
+import arc.util.Log;
+import arc.util.Time;
+import cloud.commandframework.annotations.CommandDescription;
+import cloud.commandframework.annotations.CommandMethod;
+import cloud.commandframework.annotations.CommandPermission;
+import fr.xpdustry.distributor.api.command.sender.CommandSender;
+import fr.xpdustry.distributor.api.plugin.PluginListener;
+import fr.xpdustry.router.RouterConfig;
+import fr.xpdustry.router.util.Metrics;
+
+public final class StatsCommand implements PluginListener {
+
+    private final Interval timer = new Interval();
+
+    @Override
+    public void onPluginUpdate() {
+        final var interval = RouterConfig.STATS_INTERVAL.num();
+        if (interval > 0 && timer.get(interval * Time.toSeconds)) {
+            Log.info(Metrics.report());
+        }
+    }
+
+    @CommandPermission("fr.xpdustry.router.stats")
+    @CommandMethod("router stats")
+    @CommandDescription("Show the activity and the costs of router.")
+    public void onRouterStats(final CommandSender sender) {
+        sender.sendMessage(Metrics.report());
+    }
+
+    @CommandPermission("fr.xpdustry.router.stats")
+    @CommandMethod("router stats reset")
+    @CommandDescription("Reset the router stats.")
+    public void onRouterStatsReset(final CommandSender sender) {
+        Metrics.reset();
+        sender.sendMessage("The router stats have been reset.");
+    }
+}
@@ -18,12 +18,8 @@
  */
 package fr.xpdustry.router.map;
 
-import java.util.List;
-import java.util.function.Consumer;
-import java.util.function.Function;
 import mindustry.game.Team;
 import mindustry.world.Block;
-import mindustry.world.Tile;
 import mindustry.world.Tiles;
 import mindustry.world.blocks.environment.Floor;
 
@@ -31,13 +27,26 @@ public interface MapContext {
 
     void reset(final int width, final int height);
 
+    int getWidth();
+
+    int getHeight();
+
+    void fill(final Floor floor);
+
     void setBlock(final int x, final int y, final Block block, final Team team);
 
     void setFloor(final int x, final int y, final Floor floor);
 
     void setFloor(final int x, final int y, final int w, final int h, final Floor floor);
 
-    void forEachTile(final Consumer<Tile> action);
+    /**
+     * Creates the tiles of the map, with the floors and blocks set in this context.
+     */
+    Tiles createTiles();
 
-    List<Function<Tiles, Tiles>> getActions();
+    /**
+     * Creates the tiles of the map, reusing the given tiles where they overlap instead of the floors and blocks
+     * set in this context.
+     */
+    Tiles createTiles(final Tiles previous);
 }
@@ -58,14 +58,27 @@ public final class MapLoader implements Closeable {
             }
         }
 
-        // I hate it
         final var context = generator.createContext();
         generator.generate(context);
-        Vars.world.tiles = new Tiles(1, 1);
-        for (final var action : context.getActions()) {
-            Vars.world.tiles = action.apply(Vars.world.tiles);
-        }
+        Vars.world.tiles = context.createTiles();
+
+        Vars.world.endMapLoad();
+        return context;
+    }
 
+    /**
+     * Grows the current world with the given generator, the existing tiles and buildings are kept as is.
+     *
+     * <p>The game keeps running, but the world is still reloaded: a {@code WorldLoadEvent} is fired, because the
+     * block indexer, the pathfinder and the other world-sized structures of the server (and of other plugins) must
+     * be rebuilt for the new size. The players also need to be resynced afterwards, since the size of their world
+     * changed. Expansions should therefore stay rare.
+     */
+    public static <C extends MapContext> C expand(final MapGenerator<C> generator) {
+        final var context = generator.createContext();
+        generator.generate(context);
+        Vars.world.beginMapLoad();
+        Vars.world.tiles = context.createTiles(Vars.world.tiles);
         Vars.world.endMapLoad();
         return context;
     }
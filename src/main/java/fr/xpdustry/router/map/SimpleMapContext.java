@@ -18,69 +18,123 @@
  */
 package fr.xpdustry.router.map;
 
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.List;
-import java.util.function.Consumer;
-import java.util.function.Function;
+import arc.struct.IntSeq;
+import java.util.Arrays;
+import mindustry.Vars;
+import mindustry.content.Blocks;
 import mindustry.game.Team;
 import mindustry.world.Block;
 import mindustry.world.Tile;
 import mindustry.world.Tiles;
 import mindustry.world.blocks.environment.Floor;
 
+/**
+ * Writes the map in primitive arrays indexed like {@link Tiles}, the tiles are only created once the map is done.
+ */
 public class SimpleMapContext implements MapContext {
 
-    private final List<Function<Tiles, Tiles>> actions = new ArrayList<>();
+    private final IntSeq placements = new IntSeq();
+    private short[] floors = new short[0];
+    private short[] blocks = new short[0];
+    private byte[] teams = new byte[0];
+    private int width = 0;
+    private int height = 0;
 
     @Override
     public void reset(final int width, final int height) {
-        addFunction(tiles -> {
-            final var newTiles = new Tiles(width, height);
-            newTiles.fill();
-            return newTiles;
-        });
+        this.width = width;
+        this.height = height;
+        this.floors = new short[width * height];
+        this.blocks = new short[width * height];
+        this.teams = new byte[width * height];
+        this.placements.clear();
+    }
+
+    @Override
+    public int getWidth() {
+        return width;
     }
 
     @Override
-    public void forEachTile(final Consumer<Tile> action) {
-        addConsumer(tiles -> tiles.forEach(action));
+    public int getHeight() {
+        return height;
+    }
+
+    @Override
+    public void fill(final Floor floor) {
+        Arrays.fill(floors, floor.id);
     }
 
     @Override
     public void setBlock(final int x, final int y, final Block block, final Team team) {
-        addConsumer(tiles -> tiles.get(x, y).setBlock(block, team));
+        final var index = index(x, y);
+        if (blocks[index] == 0) {
+            placements.add(index);
+        }
+        blocks[index] = block.id;
+        teams[index] = (byte) team.id;
     }
 
     @Override
     public void setFloor(final int x, final int y, final Floor floor) {
-        addConsumer(tiles -> tiles.get(x, y).setFloor(floor));
+        floors[index(x, y)] = floor.id;
     }
 
     @Override
-    public void setFloor(final int x, final int y, final int w, final int h, Floor floor) {
-        addConsumer(tiles -> {
-            for (int i = x; i < x + w; i++) {
-                for (int j = y; j < y + h; j++) {
-                    tiles.get(i, j).setFloor(floor);
-                }
-            }
-        });
+    public void setFloor(final int x, final int y, final int w, final int h, final Floor floor) {
+        if (w < 0 || h < 0) {
+            throw new IllegalArgumentException("width and height can't be negative.");
+        }
+        if (w == 0 || h == 0) {
+            return;
+        }
+        // Check the opposite corner too, otherwise the rows would spill into the next ones
+        checkBounds(x, y);
+        checkBounds(x + w - 1, y + h - 1);
+        for (int j = y; j < y + h; j++) {
+            final var start = index(x, j);
+            Arrays.fill(floors, start, start + w, floor.id);
+        }
+    }
+
+    @Override
+    public Tiles createTiles() {
+        return createTiles(new Tiles(0, 0));
     }
 
     @Override
-    public List<Function<Tiles, Tiles>> getActions() {
-        return Collections.unmodifiableList(actions);
+    public Tiles createTiles(final Tiles previous) {
+        final var tiles = new Tiles(width, height);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                if (previous.in(x, y)) {
+                    tiles.set(x, y, previous.getn(x, y));
+                } else {
+                    tiles.set(x, y, new Tile(x, y, Vars.content.block(floors[index(x, y)]), Blocks.air, Blocks.air));
+                }
+            }
+        }
+        // The blocks are placed last, since they can span over several tiles
+        for (int i = 0; i < placements.size; i++) {
+            final var index = placements.get(i);
+            final var tile = tiles.geti(index);
+            if (!previous.in(tile.x, tile.y)) {
+                tile.setBlock(Vars.content.block(blocks[index]), Team.get(teams[index] & 0xFF));
+            }
+        }
+        return tiles;
     }
 
-    protected final void addFunction(final Function<Tiles, Tiles> function) {
-        actions.add(function);
+    // An x outside of the map would silently wrap into the next row
+    private int index(final int x, final int y) {
+        checkBounds(x, y);
+        return x + (y * width);
     }
 
-    protected final void addConsumer(final Consumer<Tiles> consumer) {
-        actions.add(tiles -> {
-            consumer.accept(tiles);
-            return tiles;
-        });
+    private void checkBounds(final int x, final int y) {
+        if (x < 0 || x >= width || y < 0 || y >= height) {
+            throw new IllegalArgumentException(
+                    "The position (" + x + ", " + y + ") is outside of the map (" + width + "x" + height + ").");
+        }
     }
 }
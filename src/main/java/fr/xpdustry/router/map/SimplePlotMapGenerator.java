@@ -18,6 +18,8 @@
  */
 package fr.xpdustry.router.map;
 
+import arc.struct.IntSeq;
+import arc.struct.IntSet;
 import fr.xpdustry.router.model.PlotArea;
 import java.util.ArrayList;
 import java.util.Collections;
@@ -29,24 +31,65 @@ import mindustry.world.blocks.environment.Floor;
 
 public final class SimplePlotMapGenerator implements MapGenerator<PlotMapContext> {
 
-    private static final int PLOT_QUARTER_X = 2;
-    private static final int PLOT_QUARTER_Y = 2;
-    private static final int PLOT_SIZE_X = 32;
-    private static final int PLOT_SIZE_Y = 32;
+    public static final int DEFAULT_PLOTS_PER_QUARTER = 2;
+    public static final int DEFAULT_PLOT_SIZE = 32;
+    public static final int DEFAULT_ROAD_SIZE = 4;
+
+    // The server keeps a Tile object per tile, about 4 million tiles is what it can comfortably allocate
+    public static final int MAX_MAP_SIZE = 2048;
+    // The plot manager indexes the plot ids in shorts, with an offset
+    public static final int MAX_PLOT_COUNT = 32_000;
 
     private static final int MAIN_ROAD_SIZE = Blocks.coreNucleus.size + 2;
-    private static final int ROAD_SIZE = 4;
     private static final int BORDER_SIZE = 1;
 
-    private static final int PLOT_TOTAL_SIZE_X = PLOT_SIZE_X + (BORDER_SIZE * 2);
-    private static final int PLOT_QUARTER_SIZE_X = (ROAD_SIZE + PLOT_TOTAL_SIZE_X) * PLOT_QUARTER_X;
-    private static final int PLOT_TOTAL_SIZE_Y = PLOT_SIZE_Y + (BORDER_SIZE * 2);
-    private static final int PLOT_QUARTER_SIZE_Y = (ROAD_SIZE + PLOT_TOTAL_SIZE_Y) * PLOT_QUARTER_Y;
-
     private static final Floor BORDER_FLOOR = Blocks.darkPanel1.asFloor();
     private static final Floor PLOT_FLOOR = Blocks.metalFloor3.asFloor();
     private static final Floor ROAD_FLOOR = Blocks.dacite.asFloor();
 
+    private final int plotsX;
+    private final int plotsY;
+    private final int plotSize;
+    private final int roadSize;
+    private final int plotTotalSize;
+    private final int quarterSizeX;
+    private final int quarterSizeY;
+
+    public SimplePlotMapGenerator() {
+        this(DEFAULT_PLOTS_PER_QUARTER, DEFAULT_PLOTS_PER_QUARTER, DEFAULT_PLOT_SIZE, DEFAULT_ROAD_SIZE);
+    }
+
+    /**
+     * Creates a generator of 4 quarters of plots around the core.
+     *
+     * @param plotsX   the number of plots per quarter along the x axis
+     * @param plotsY   the number of plots per quarter along the y axis
+     * @param plotSize the size of the plots, without their border
+     * @param roadSize the size of the roads between the plots
+     * @throws IllegalArgumentException if a parameter is not positive, or if the map or the plot count is too big
+     */
+    public SimplePlotMapGenerator(final int plotsX, final int plotsY, final int plotSize, final int roadSize) {
+        if (plotsX < 1 || plotsY < 1 || plotSize < 1 || roadSize < 1) {
+            throw new IllegalArgumentException("The plot count, plot size and road size must be positive.");
+        }
+        this.plotsX = plotsX;
+        this.plotsY = plotsY;
+        this.plotSize = plotSize;
+        this.roadSize = roadSize;
+        this.plotTotalSize = plotSize + (BORDER_SIZE * 2);
+        final var width = getMapSize(plotsX, plotSize, roadSize);
+        final var height = getMapSize(plotsY, plotSize, roadSize);
+        if (width > MAX_MAP_SIZE || height > MAX_MAP_SIZE) {
+            throw new IllegalArgumentException(
+                    "The map would be " + width + "x" + height + ", the maximum size is " + MAX_MAP_SIZE + ".");
+        }
+        if ((long) plotsX * plotsY * 4 > MAX_PLOT_COUNT) {
+            throw new IllegalArgumentException("The maximum number of plots is " + MAX_PLOT_COUNT + ".");
+        }
+        this.quarterSizeX = (int) ((width - MAIN_ROAD_SIZE) / 2);
+        this.quarterSizeY = (int) ((height - MAIN_ROAD_SIZE) / 2);
+    }
+
     @Override
     public PlotMapContext createContext() {
         return new SimplePlotMapContext();
@@ -54,28 +97,126 @@ public final class SimplePlotMapGenerator implements MapGenerator<PlotMapContext
 
     @Override
     public void generate(final PlotMapContext context) {
-        context.reset(PLOT_QUARTER_SIZE_X * 2 + MAIN_ROAD_SIZE, PLOT_QUARTER_SIZE_Y * 2 + MAIN_ROAD_SIZE);
-        context.forEachTile(t -> t.setFloor(ROAD_FLOOR));
+        context.reset(quarterSizeX * 2 + MAIN_ROAD_SIZE, quarterSizeY * 2 + MAIN_ROAD_SIZE);
+        context.fill(ROAD_FLOOR);
 
-        final var coreX = PLOT_QUARTER_SIZE_X + Math.floorDiv(MAIN_ROAD_SIZE, 2);
-        final var coreY = PLOT_QUARTER_SIZE_Y + Math.floorDiv(MAIN_ROAD_SIZE, 2);
+        final var coreX = quarterSizeX + Math.floorDiv(MAIN_ROAD_SIZE, 2);
+        final var coreY = quarterSizeY + Math.floorDiv(MAIN_ROAD_SIZE, 2);
         context.setBlock(coreX, coreY, Blocks.coreNucleus, Team.sharded);
 
         for (int i = 0; i < 2; i++) { // QUARTER_X
             for (int j = 0; j < 2; j++) { // QUARTER_Y
-                for (int k = 0; k < PLOT_QUARTER_X; k++) {
-                    for (int l = 0; l < PLOT_QUARTER_Y; l++) {
+                for (int k = 0; k < plotsX; k++) {
+                    for (int l = 0; l < plotsY; l++) {
                         // coords = QUARTER + ROAD + PLOT
-                        final var x = ((PLOT_QUARTER_SIZE_X + MAIN_ROAD_SIZE) * i)
-                                + (ROAD_SIZE * (k + 1 - i))
-                                + (PLOT_TOTAL_SIZE_X * k);
-                        final var y = ((PLOT_QUARTER_SIZE_Y + MAIN_ROAD_SIZE) * j)
-                                + (ROAD_SIZE * (l + 1 - j))
-                                + (PLOT_TOTAL_SIZE_Y * l);
-
-                        context.addArea(PlotArea.of(x + 1, y + 1, PLOT_SIZE_X, PLOT_SIZE_Y));
-                        context.setFloor(x, y, PLOT_TOTAL_SIZE_X, PLOT_TOTAL_SIZE_Y, BORDER_FLOOR); // Outline
-                        context.setFloor(x + 1, y + 1, PLOT_SIZE_X, PLOT_SIZE_Y, PLOT_FLOOR); // Internal
+                        final var x = ((quarterSizeX + MAIN_ROAD_SIZE) * i)
+                                + (roadSize * (k + 1 - i))
+                                + (plotTotalSize * k);
+                        final var y = ((quarterSizeY + MAIN_ROAD_SIZE) * j)
+                                + (roadSize * (l + 1 - j))
+                                + (plotTotalSize * l);
+
+                        context.addArea(PlotArea.of(x + BORDER_SIZE, y + BORDER_SIZE, plotSize, plotSize));
+                        drawPlot(context, x, y);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Creates a generator adding a column of plots on the right and a row of plots on the top of the current map,
+     * aligned with the existing plots.
+     *
+     * @param width  the width of the current map
+     * @param height the height of the current map
+     * @param areas  the areas of the existing plots
+     * @throws IllegalArgumentException if the expanded map or its plot count would be too big
+     */
+    public MapGenerator<PlotMapContext> createExpansion(final int width, final int height, final List<PlotArea> areas) {
+        final var band = plotTotalSize + roadSize;
+        if (width + band > MAX_MAP_SIZE || height + band > MAX_MAP_SIZE) {
+            throw new IllegalArgumentException("The map can't be larger than " + MAX_MAP_SIZE + ".");
+        }
+        final var columns = new IntSet();
+        final var rows = new IntSet();
+        for (final var area : areas) {
+            columns.add(area.getTileX() - BORDER_SIZE);
+            rows.add(area.getTileY() - BORDER_SIZE);
+        }
+        columns.add(width);
+        rows.add(height);
+        if (areas.size() + columns.size + rows.size - 1 > MAX_PLOT_COUNT) {
+            throw new IllegalArgumentException("The maximum number of plots is " + MAX_PLOT_COUNT + ".");
+        }
+        return new ExpansionGenerator(width + band, height + band, width, height, columns.toArray(), rows.toArray());
+    }
+
+    public int getPlotCount() {
+        return plotsX * plotsY * 4;
+    }
+
+    /**
+     * Returns the size of a map side with the given number of plots per quarter.
+     */
+    public static long getMapSize(final int plots, final int plotSize, final int roadSize) {
+        return ((long) roadSize + plotSize + (BORDER_SIZE * 2)) * plots * 2 + MAIN_ROAD_SIZE;
+    }
+
+    // Each tile is only written once, the outline is drawn as strips around the inside
+    private void drawPlot(final PlotMapContext context, final int x, final int y) {
+        final var right = x + plotTotalSize - BORDER_SIZE;
+        final var top = y + plotTotalSize - BORDER_SIZE;
+        context.setFloor(x, y, plotTotalSize, BORDER_SIZE, BORDER_FLOOR);
+        context.setFloor(x, top, plotTotalSize, BORDER_SIZE, BORDER_FLOOR);
+        context.setFloor(x, y + BORDER_SIZE, BORDER_SIZE, plotSize, BORDER_FLOOR);
+        context.setFloor(right, y + BORDER_SIZE, BORDER_SIZE, plotSize, BORDER_FLOOR);
+        context.setFloor(x + BORDER_SIZE, y + BORDER_SIZE, plotSize, plotSize, PLOT_FLOOR);
+    }
+
+    // Only draws the plots in the new band, the tiles of the current map are kept when expanding
+    private final class ExpansionGenerator implements MapGenerator<PlotMapContext> {
+
+        private final int width;
+        private final int height;
+        private final int previousWidth;
+        private final int previousHeight;
+        private final IntSeq columns;
+        private final IntSeq rows;
+
+        private ExpansionGenerator(
+                final int width,
+                final int height,
+                final int previousWidth,
+                final int previousHeight,
+                final IntSeq columns,
+                final IntSeq rows) {
+            this.width = width;
+            this.height = height;
+            this.previousWidth = previousWidth;
+            this.previousHeight = previousHeight;
+            this.columns = columns;
+            this.rows = rows;
+            this.columns.sort();
+            this.rows.sort();
+        }
+
+        @Override
+        public PlotMapContext createContext() {
+            return new SimplePlotMapContext();
+        }
+
+        @Override
+        public void generate(final PlotMapContext context) {
+            context.reset(width, height);
+            context.fill(ROAD_FLOOR);
+            for (int i = 0; i < columns.size; i++) {
+                for (int j = 0; j < rows.size; j++) {
+                    final var x = columns.get(i);
+                    final var y = rows.get(j);
+                    if (x == previousWidth || y == previousHeight) {
+                        context.addArea(PlotArea.of(x + BORDER_SIZE, y + BORDER_SIZE, plotSize, plotSize));
+                        drawPlot(context, x, y);
                     }
                 }
             }
@@ -0,0 +1,62 @@
+/*
+ * Router, a plugin for sharing schematics.
+ *
+ * Copyright (C) 2022 Xpdustry
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package fr.xpdustry.router.model;
+
+import arc.struct.ObjectIntMap;
+import arc.struct.Seq;
+
+/**
+ * Interns the player uuids into dense ids, so they can be stored in primitive sets and bitsets.
+ * The ids are never released, they stay valid until the server restarts.
+ */
+public final class PlayerRegistry {
+
+    public static final int NONE = -1;
+
+    private final ObjectIntMap<String> ids = new ObjectIntMap<>();
+    private final Seq<String> uuids = new Seq<>();
+
+    /**
+     * Returns the id of the player, assigning a new one if the player is not known yet.
+     */
+    public int intern(final String uuid) {
+        var id = ids.get(uuid, NONE);
+        if (id == NONE) {
+            id = uuids.size;
+            uuids.add(uuid);
+            ids.put(uuid, id);
+        }
+        return id;
+    }
+
+    /**
+     * Returns the id of the player, or {@link #NONE} if the player is not known.
+     */
+    public int find(final String uuid) {
+        return ids.get(uuid, NONE);
+    }
+
+    public String getUuid(final int id) {
+        return uuids.get(id);
+    }
+
+    public int size() {
+        return uuids.size;
+    }
+}
@@ -18,45 +18,75 @@
  */
 package fr.xpdustry.router.model;
 
+import arc.struct.IntSet;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.HashSet;
-import java.util.Set;
 import org.checkerframework.checker.nullness.qual.Nullable;
 
 public final class Plot {
 
-    private final Set<String> members = new HashSet<>();
+    // The players are stored by their id in the registry
+    private final IntSet members = new IntSet();
     private final PlotArea area;
     private final int id;
-    private @Nullable String owner = null;
+    private final PlotListener listener;
+    private final PlayerRegistry players;
+    private int owner = PlayerRegistry.NONE;
 
-    Plot(final PlotArea area, int id) {
+    Plot(final PlotArea area, int id, final PlotListener listener, final PlayerRegistry players) {
         this.area = area;
         this.id = id;
+        this.listener = listener;
+        this.players = players;
     }
 
     public static Plot of(final PlotArea area, final int id) {
-        return new Plot(area, id);
+        return new Plot(area, id, PlotListener.NOOP, new PlayerRegistry());
+    }
+
+    public static Plot of(
+            final PlotArea area, final int id, final PlotListener listener, final PlayerRegistry players) {
+        return new Plot(area, id, listener, players);
     }
 
     public @Nullable String getOwner() {
+        return owner == PlayerRegistry.NONE ? null : players.getUuid(owner);
+    }
+
+    public int getOwnerId() {
         return owner;
     }
 
     public void setOwner(final @Nullable String owner) {
+        setOwnerId(owner == null ? PlayerRegistry.NONE : players.intern(owner));
+    }
+
+    public void setOwnerId(final int owner) {
+        final var previous = this.owner;
         this.owner = owner;
-        if (owner != null) {
+        if (owner != PlayerRegistry.NONE) {
             clearMembers();
         }
+        if (previous != owner) {
+            listener.onPlotOwnerChange(this, previous);
+        }
     }
 
     public boolean isOwner(final String player) {
-        return player.equals(owner);
+        return isOwner(players.find(player));
+    }
+
+    public boolean isOwner(final int player) {
+        return player != PlayerRegistry.NONE && player == owner;
     }
 
     public boolean isTrusted(final String player) {
-        return isOwner(player) || hasMember(player);
+        return isTrusted(players.find(player));
+    }
+
+    public boolean isTrusted(final int player) {
+        return isOwner(player) || members.contains(player);
     }
 
     public PlotArea getArea() {
@@ -64,23 +94,45 @@ public final class Plot {
     }
 
     public Collection<String> getMembers() {
-        return Collections.unmodifiableCollection(members);
+        final var result = new ArrayList<String>(members.size);
+        final var iterator = members.iterator();
+        while (iterator.hasNext) {
+            result.add(players.getUuid(iterator.next()));
+        }
+        return Collections.unmodifiableCollection(result);
     }
 
     public void addMember(final String member) {
-        members.add(member);
+        addMember(players.intern(member));
+    }
+
+    public void addMember(final int member) {
+        if (members.add(member)) {
+            listener.onPlotMemberAdd(this, member);
+        }
     }
 
     public boolean hasMember(final String member) {
-        return members.contains(member);
+        return members.contains(players.find(member));
     }
 
     public void removeMember(final String member) {
-        members.remove(member);
+        removeMember(players.find(member));
+    }
+
+    public void removeMember(final int member) {
+        if (members.remove(member)) {
+            listener.onPlotMemberRemove(this, member);
+        }
     }
 
     public void clearMembers() {
-        members.clear();
+        final var iterator = members.iterator();
+        while (iterator.hasNext) {
+            final var member = iterator.next();
+            iterator.remove();
+            listener.onPlotMemberRemove(this, member);
+        }
     }
 
     public int getId() {
@@ -89,6 +141,7 @@ public final class Plot {
 
     @Override
     public String toString() {
-        return "Plot{" + "members=" + members + ", area=" + area + ", id=" + id + ", owner='" + owner + '\'' + '}';
+        return "Plot{" + "members=" + getMembers() + ", area=" + area + ", id=" + id + ", owner='" + getOwner() + '\''
+                + '}';
     }
 }
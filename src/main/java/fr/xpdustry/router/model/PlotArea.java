@@ -20,20 +20,25 @@ package fr.xpdustry.router.model;
 
 import arc.math.geom.Point2;
 import arc.math.geom.Position;
+import arc.struct.IntSeq;
 import arc.struct.IntSet;
 import arc.struct.Seq;
 import arc.struct.StringMap;
-import java.util.ArrayList;
+import fr.xpdustry.router.util.BatchTask;
+import fr.xpdustry.router.util.Metrics;
 import java.util.Objects;
 import mindustry.Vars;
 import mindustry.game.Schematic;
 import mindustry.game.Schematic.Stile;
-import mindustry.gen.Call;
+import mindustry.gen.Building;
 import mindustry.world.blocks.ConstructBlock.ConstructBuild;
 import org.checkerframework.checker.nullness.qual.Nullable;
 
 public final class PlotArea implements Position {
 
+    public static final String OFFSET_X_TAG = "router-offset-x";
+    public static final String OFFSET_Y_TAG = "router-offset-y";
+
     private final int x;
     private final int y;
     private final int w;
@@ -103,17 +108,25 @@ public final class PlotArea implements Position {
     }
 
     public @Nullable Schematic getSchematic() {
+        final var start = System.nanoTime();
+        final var schematic = captureSchematic();
+        Metrics.GET_SCHEMATIC.record(start);
+        return schematic;
+    }
+
+    private @Nullable Schematic captureSchematic() {
         int x1 = Integer.MAX_VALUE;
         int y1 = Integer.MAX_VALUE;
         int x2 = Integer.MIN_VALUE;
         int y2 = Integer.MIN_VALUE;
-        var empty = true;
 
+        final var positions = new IntSet();
+        final var buildings = new Seq<Building>();
         for (int tx = getTileX(); tx < getTileX() + getTileW(); tx++) {
             for (int ty = getTileY(); ty < getTileY() + getTileH(); ty++) {
                 final var build = Vars.world.build(tx, ty);
 
-                if (build != null) {
+                if (build != null && positions.add(build.pos())) {
                     final var block = build instanceof ConstructBuild cons ? cons.current : build.block;
                     final int top = block.size / 2;
                     final int bot = block.size % 2 == 1 ? -block.size / 2 : -(block.size - 1) / 2;
@@ -122,51 +135,98 @@ public final class PlotArea implements Position {
                     y1 = Math.min(build.tileY() + bot, y1);
                     x2 = Math.max(build.tileX() + top, x2);
                     y2 = Math.max(build.tileY() + top, y2);
-                    empty = false;
+                    buildings.add(build);
                 }
             }
         }
 
-        if (empty) {
+        if (buildings.isEmpty()) {
             return null;
-        } else {
-            final var counted = new IntSet();
-            final var tiles = new ArrayList<Stile>();
-
-            for (int x = getTileX(); x < getTileX() + getTileW(); x++) {
-                for (int y = getTileY(); y < getTileY() + getTileH(); y++) {
-                    final var build = Vars.world.build(x, y);
-
-                    if (build != null && !counted.contains(build.pos())) {
-                        final var block = build instanceof ConstructBuild cons ? cons.current : build.block;
-                        final var config = build instanceof ConstructBuild cons ? cons.lastConfig : build.config();
-                        tiles.add(new Stile(
-                                block, build.tileX() - x1, build.tileY() - y1, config, (byte) build.rotation));
-                        counted.add(build.pos());
-                    }
-                }
-            }
+        }
 
-            return new Schematic(Seq.with(tiles), new StringMap(), x2 - x1 + 1, y2 - y1 + 1);
+        // Normalize the offsets once the bounds are known
+        final var tiles = new Seq<Stile>(buildings.size);
+        for (final var build : buildings) {
+            final var block = build instanceof ConstructBuild cons ? cons.current : build.block;
+            final var config = build instanceof ConstructBuild cons ? cons.lastConfig : build.config();
+            tiles.add(new Stile(block, build.tileX() - x1, build.tileY() - y1, config, (byte) build.rotation));
         }
+
+        // Remember where the schematic was in the plot
+        final var tags = new StringMap();
+        tags.put(OFFSET_X_TAG, Integer.toString(x1 - getTileX()));
+        tags.put(OFFSET_Y_TAG, Integer.toString(y1 - getTileY()));
+        return new Schematic(tiles, tags, x2 - x1 + 1, y2 - y1 + 1);
     }
 
     public void setSchematic(final Schematic schematic) {
-        final var x = (getTileW() - schematic.width) / 2 + getTileX();
-        final var y = (getTileH() - schematic.height) / 2 + getTileY();
-        for (final var stile : schematic.tiles) {
-            final var tile = Vars.world.tile(stile.x + x, stile.y + y);
-            Call.setTile(tile, stile.block, Vars.state.rules.defaultTeam, stile.rotation);
-            tile.build.configure(stile.config);
+        setSchematic(schematic, 0, () -> {});
+    }
+
+    /**
+     * Places the schematic at its captured position, or at the center of this area if it does not fit, at most
+     * {@code batch} tiles per tick. The tiles are only placed server-side, the players are synced by the caller once
+     * the whole schematic is placed.
+     */
+    public void setSchematic(final Schematic schematic, final int batch, final Runnable callback) {
+        var offsetX = schematic.tags.getInt(OFFSET_X_TAG, -1);
+        var offsetY = schematic.tags.getInt(OFFSET_Y_TAG, -1);
+        if (offsetX < 0 || offsetX + schematic.width > getTileW()) {
+            offsetX = (getTileW() - schematic.width) / 2;
         }
+        if (offsetY < 0 || offsetY + schematic.height > getTileH()) {
+            offsetY = (getTileH() - schematic.height) / 2;
+        }
+        final var x = getTileX() + offsetX;
+        final var y = getTileY() + offsetY;
+        final var team = Vars.state.rules.defaultTeam;
+        BatchTask.start(
+                schematic.tiles.size,
+                batch,
+                i -> {
+                    final var stile = schematic.tiles.get(i);
+                    final var tile = Vars.world.tile(stile.x + x, stile.y + y);
+                    if (tile == null) {
+                        return;
+                    }
+                    tile.setBlock(stile.block, team, stile.rotation);
+                    if (tile.build != null && stile.config != null) {
+                        tile.build.configured(null, stile.config);
+                    }
+                },
+                callback,
+                Metrics.SET_SCHEMATIC);
     }
 
     public void clear() {
-        Vars.world.tiles.forEach(t -> {
-            if (contains(t) && t.build != null) {
-                t.build.kill();
+        clear(0, () -> {});
+    }
+
+    /**
+     * Removes the buildings of this area, at most {@code batch} per tick.
+     */
+    public void clear(final int batch, final Runnable callback) {
+        final var buildings = new IntSeq();
+        final var counted = new IntSet();
+        for (int ty = getTileY(); ty < getTileY() + getTileH(); ty++) {
+            for (int tx = getTileX(); tx < getTileX() + getTileW(); tx++) {
+                final var build = Vars.world.build(tx, ty);
+                if (build != null && counted.add(build.pos())) {
+                    buildings.add(build.pos());
+                }
             }
-        });
+        }
+        BatchTask.start(
+                buildings.size,
+                batch,
+                i -> {
+                    final var build = Vars.world.build(buildings.get(i));
+                    if (build != null) {
+                        build.kill();
+                    }
+                },
+                callback,
+                Metrics.CLEAR);
     }
 
     @Override
@@ -0,0 +1,30 @@
+/*
+ * Router, a plugin for sharing schematics.
+ *
+ * Copyright (C) 2022 Xpdustry
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package fr.xpdustry.router.model;
+
+public interface PlotListener {
+
+    PlotListener NOOP = new PlotListener() {};
+
+    default void onPlotOwnerChange(final Plot plot, final int previous) {}
+
+    default void onPlotMemberAdd(final Plot plot, final int member) {}
+
+    default void onPlotMemberRemove(final Plot plot, final int member) {}
+}
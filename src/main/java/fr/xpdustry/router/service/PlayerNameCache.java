@@ -0,0 +1,97 @@
+/*
+ * Router, a plugin for sharing schematics.
+ *
+ * Copyright (C) 2022 Xpdustry
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package fr.xpdustry.router.service;
+
+import arc.util.Interval;
+import arc.util.Strings;
+import arc.util.Time;
+import fr.xpdustry.distributor.api.event.EventHandler;
+import fr.xpdustry.distributor.api.plugin.PluginListener;
+import java.io.Serial;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import mindustry.Vars;
+import mindustry.game.EventType;
+import mindustry.gen.Groups;
+import mindustry.gen.Player;
+
+public final class PlayerNameCache implements PluginListener {
+
+    private static final int MAX_CACHED_NAMES = 512;
+
+    private final Map<String, String> names = new LruMap(MAX_CACHED_NAMES);
+    private final Interval timer = new Interval();
+
+    @EventHandler
+    public void onPlayerJoin(final EventType.PlayerJoin event) {
+        update(event.player);
+    }
+
+    @EventHandler
+    public void onPlayerLeave(final EventType.PlayerLeave event) {
+        update(event.player);
+    }
+
+    // Players can be renamed by other plugins, there is no event for it
+    @Override
+    public void onPluginUpdate() {
+        if (timer.get(Time.toSeconds)) {
+            Groups.player.each(this::update);
+        }
+    }
+
+    public void update(final Player player) {
+        final var name = Strings.stripColors(player.name());
+        if (!name.equals(names.get(player.uuid()))) {
+            names.put(player.uuid(), name);
+        }
+    }
+
+    public String getName(final String uuid) {
+        var name = names.get(uuid);
+        if (name == null) {
+            final var info = Vars.netServer.admins.getInfoOptional(uuid);
+            // Unknown players are not cached, their name may be known later
+            if (info == null) {
+                return uuid;
+            }
+            name = Strings.stripColors(info.lastName);
+            names.put(uuid, name);
+        }
+        return name;
+    }
+
+    private static final class LruMap extends LinkedHashMap<String, String> {
+
+        @Serial
+        private static final long serialVersionUID = 2437162417655214876L;
+
+        private final int capacity;
+
+        private LruMap(final int capacity) {
+            super(16, 0.75F, true);
+            this.capacity = capacity;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(final Map.Entry<String, String> eldest) {
+            return size() > capacity;
+        }
+    }
+}
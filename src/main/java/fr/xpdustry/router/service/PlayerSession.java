@@ -0,0 +1,143 @@
+/*
+ * Router, a plugin for sharing schematics.
+ *
+ * Copyright (C) 2022 Xpdustry
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package fr.xpdustry.router.service;
+
+import arc.struct.Bits;
+import arc.struct.IntMap;
+import arc.util.Interval;
+import fr.xpdustry.router.model.PlotArea;
+import mindustry.Vars;
+import mindustry.gen.Player;
+
+/**
+ * The state of a connected player, shared by the listeners of the plugin.
+ */
+public final class PlayerSession {
+
+    private static final float VIEW_MARGIN = 4F * Vars.tilesize;
+    private static final float DEFAULT_VIEW_SIZE = 60F * Vars.tilesize;
+
+    private final Interval warnings = new Interval();
+    private final IntMap<SentLabel> labels = new IntMap<>();
+    private final Player player;
+    private final int id;
+    private final Bits trusted;
+    private final Bits outdated = new Bits();
+    private boolean debug = false;
+
+    // Action rate limit state, the bucket starts full
+    private double tokens = Double.MAX_VALUE;
+    private long refillTime = System.nanoTime();
+
+    PlayerSession(final Player player, final int id, final Bits trusted) {
+        this.player = player;
+        this.id = id;
+        this.trusted = trusted;
+    }
+
+    public Player getPlayer() {
+        return player;
+    }
+
+    /**
+     * Returns the id of the player in the player registry.
+     */
+    public int getId() {
+        return id;
+    }
+
+    /**
+     * Returns the ids of the plots this player is trusted in.
+     */
+    public Bits getTrustedPlots() {
+        return trusted;
+    }
+
+    /**
+     * Returns the ids of the plots modified server-side since this player last received the world.
+     */
+    public Bits getOutdatedPlots() {
+        return outdated;
+    }
+
+    /**
+     * Returns whether the area is in the viewport of the player, with a small margin.
+     */
+    public boolean isViewing(final PlotArea area) {
+        var x = player.con.viewX;
+        var y = player.con.viewY;
+        var w = player.con.viewWidth;
+        var h = player.con.viewHeight;
+        // The client did not send its viewport yet
+        if (w == 0F || h == 0F) {
+            x = player.x;
+            y = player.y;
+            w = DEFAULT_VIEW_SIZE;
+            h = DEFAULT_VIEW_SIZE;
+        }
+        return area.getX() < x + (w / 2F) + VIEW_MARGIN
+                && area.getX() + area.getW() > x - (w / 2F) - VIEW_MARGIN
+                && area.getY() < y + (h / 2F) + VIEW_MARGIN
+                && area.getY() + area.getH() > y - (h / 2F) - VIEW_MARGIN;
+    }
+
+    public Interval getWarnings() {
+        return warnings;
+    }
+
+    public boolean isDebug() {
+        return debug;
+    }
+
+    void setDebug(final boolean debug) {
+        this.debug = debug;
+    }
+
+    /**
+     * Takes a token from the action bucket of this player, refilled at {@code rate} tokens per second up to
+     * {@code burst} tokens.
+     *
+     * @return false if the bucket is empty and the action should be dropped
+     */
+    public boolean tryAcquireAction(final int rate, final int burst, final long now) {
+        if (rate <= 0) {
+            return true;
+        }
+        final var elapsed = Math.max(0L, now - refillTime);
+        refillTime = now;
+        tokens = Math.min(burst, tokens + (elapsed * rate / 1_000_000_000D));
+        if (tokens < 1D) {
+            return false;
+        }
+        tokens -= 1D;
+        return true;
+    }
+
+    /**
+     * Returns the debug labels sent to this player, by label key.
+     */
+    public IntMap<SentLabel> getLabels() {
+        return labels;
+    }
+
+    /**
+     * A label sent to this player, {@code changed} is the time its text last changed.
+     */
+    public record SentLabel(String text, long expiration, long changed) {}
+}
@@ -0,0 +1,93 @@
+/*
+ * Router, a plugin for sharing schematics.
+ *
+ * Copyright (C) 2022 Xpdustry
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package fr.xpdustry.router.service;
+
+import arc.struct.IntMap;
+import fr.xpdustry.distributor.api.event.EventHandler;
+import fr.xpdustry.distributor.api.plugin.PluginListener;
+import fr.xpdustry.router.RouterPlugin;
+import java.util.function.Consumer;
+import mindustry.game.EventType;
+import mindustry.gen.Player;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * Holds the sessions of the connected players, by player id.
+ */
+public final class PlayerSessionStore implements PluginListener {
+
+    private final IntMap<PlayerSession> sessions = new IntMap<>();
+    private final RouterPlugin router;
+    private int debugging = 0;
+
+    public PlayerSessionStore(final RouterPlugin router) {
+        this.router = router;
+    }
+
+    @EventHandler
+    public void onPlayerJoin(final EventType.PlayerJoin event) {
+        getSession(event.player);
+    }
+
+    @EventHandler
+    public void onPlayerLeave(final EventType.PlayerLeave event) {
+        final var session = sessions.remove(event.player.id);
+        if (session != null && session.isDebug()) {
+            debugging--;
+        }
+    }
+
+    public @Nullable PlayerSession findSession(final Player player) {
+        return sessions.get(player.id);
+    }
+
+    /**
+     * Returns the session of the player, creating it if the player does not have one yet.
+     */
+    public PlayerSession getSession(final Player player) {
+        var session = sessions.get(player.id);
+        if (session == null) {
+            final var id = router.getPlayerRegistry().intern(player.uuid());
+            session = new PlayerSession(player, id, router.getPlotManager().getTrustedPlots(id));
+            sessions.put(player.id, session);
+        }
+        return session;
+    }
+
+    /**
+     * Toggles the debug mode of the session, the store counts the debugging players to skip the debug rendering when
+     * there are none.
+     */
+    public void setDebug(final PlayerSession session, final boolean debug) {
+        if (session.isDebug() != debug) {
+            session.setDebug(debug);
+            debugging += debug ? 1 : -1;
+        }
+    }
+
+    public boolean hasDebugSessions() {
+        return debugging > 0;
+    }
+
+    public void forEach(final Consumer<PlayerSession> action) {
+        for (final var session : sessions.values()) {
+            action.accept(session);
+        }
+    }
+}
@@ -0,0 +1,63 @@
+/*
+ * Router, a plugin for sharing schematics.
+ *
+ * Copyright (C) 2022 Xpdustry
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package fr.xpdustry.router.service;
+
+import arc.struct.Bits;
+import java.util.function.IntConsumer;
+
+/**
+ * The ids of the plots modified since the last drain. Each consumer has its own set, so draining one does not affect
+ * the others.
+ */
+public final class PlotDirtySet {
+
+    private final Bits bits = new Bits();
+
+    PlotDirtySet() {}
+
+    void mark(final int id) {
+        bits.set(id);
+    }
+
+    public boolean isMarked(final int id) {
+        return bits.get(id);
+    }
+
+    public boolean isEmpty() {
+        return bits.isEmpty();
+    }
+
+    /**
+     * Calls the action with each modified plot id in ascending order, then clears the set.
+     */
+    public void drain(final IntConsumer action) {
+        for (int id = bits.nextSetBit(0); id != -1; id = bits.nextSetBit(id + 1)) {
+            action.accept(id);
+        }
+        bits.clear();
+    }
+
+    public void clear(final int id) {
+        bits.clear(id);
+    }
+
+    public void clear() {
+        bits.clear();
+    }
+}
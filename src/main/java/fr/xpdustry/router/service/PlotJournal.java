@@ -0,0 +1,293 @@
+/*
+ * Router, a plugin for sharing schematics.
+ *
+ * Copyright (C) 2022 Xpdustry
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package fr.xpdustry.router.service;
+
+import arc.math.geom.Point2;
+import arc.struct.Bits;
+import arc.struct.IntMap;
+import arc.struct.IntSeq;
+import arc.struct.LongSeq;
+import fr.xpdustry.distributor.api.event.EventHandler;
+import fr.xpdustry.distributor.api.plugin.PluginListener;
+import fr.xpdustry.router.RouterConfig;
+import fr.xpdustry.router.RouterPlugin;
+import fr.xpdustry.router.event.PlotsCreateEvent;
+import fr.xpdustry.router.model.Plot;
+import fr.xpdustry.router.util.BatchTask;
+import fr.xpdustry.router.util.TileStates;
+import mindustry.Vars;
+import mindustry.world.Tile;
+
+/**
+ * Remembers the last edits of each plot, so they can be undone and redone.
+ * The edits are recorded when an action is accepted, and completed on the next update, once the action is applied.
+ * An action touching several buildings is recorded as a group of edits, undone and redone as a whole.
+ */
+public final class PlotJournal implements PluginListener {
+
+    private final IntMap<EditRing> rings = new IntMap<>();
+    private final IntSeq pendingPositions = new IntSeq();
+    private final LongSeq pendingStates = new LongSeq();
+    // Set for the pending edits continuing the action of the previous one
+    private final Bits pendingChained = new Bits();
+    private final RouterPlugin router;
+
+    public PlotJournal(final RouterPlugin router) {
+        this.router = router;
+    }
+
+    @EventHandler
+    public void onPlotsCreate(final PlotsCreateEvent event) {
+        this.rings.clear();
+        this.pendingPositions.clear();
+        this.pendingStates.clear();
+        this.pendingChained.clear();
+    }
+
+    @Override
+    public void onPluginUpdate() {
+        if (pendingPositions.isEmpty()) {
+            return;
+        }
+        // Whether the next recorded edit continues the action of the last one, in the same plot
+        var chained = false;
+        var previous = -1;
+        for (int i = 0; i < pendingPositions.size; i++) {
+            final var position = pendingPositions.get(i);
+            final var tile = Vars.world.tile(position);
+            final var plot = router.getPlotManager().findPlotAt(Point2.x(position), Point2.y(position));
+            if (!pendingChained.get(i) || (plot != null && plot.getId() != previous)) {
+                chained = false;
+            }
+            if (tile == null || plot == null) {
+                continue;
+            }
+            final var before = pendingStates.get(i);
+            final var after = capture(tile);
+            if (before != after) {
+                getRing(plot).record(position, before, after, chained);
+                chained = true;
+                previous = plot.getId();
+            }
+        }
+        pendingPositions.clear();
+        pendingStates.clear();
+        pendingChained.clear();
+    }
+
+    /**
+     * Records the state of the tile before an action, the state after it is captured on the next update.
+     */
+    public void record(final Tile tile) {
+        // Buildings are always restored from their center
+        final var target = tile.build != null ? tile.build.tile : tile;
+        add(target, false);
+    }
+
+    /**
+     * Records the state of the tiles before a block is placed, as a single edit. Every building under the footprint
+     * is recorded before the placed tile, so undoing the edit removes the new block before putting them back.
+     *
+     * @param footprint the packed positions of the tiles covered by the placed block
+     */
+    public void recordPlacement(final Tile tile, final IntSeq footprint) {
+        final var first = pendingPositions.size;
+        for (int i = 0; i < footprint.size; i++) {
+            final var build = Vars.world.build(footprint.get(i));
+            if (build != null && build.tile != tile && !isPending(build.tile.pos(), first)) {
+                add(build.tile, pendingPositions.size != first);
+            }
+        }
+        add(tile, pendingPositions.size != first);
+    }
+
+    private void add(final Tile tile, final boolean chained) {
+        if (chained) {
+            pendingChained.set(pendingPositions.size);
+        }
+        pendingPositions.add(tile.pos());
+        pendingStates.add(capture(tile));
+    }
+
+    private boolean isPending(final int position, final int from) {
+        for (int i = from; i < pendingPositions.size; i++) {
+            if (pendingPositions.get(i) == position) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // A tile covered by a building centered elsewhere holds nothing of its own
+    private static long capture(final Tile tile) {
+        return tile.build == null || tile.build.tile == tile ? TileStates.capture(tile) : 0L;
+    }
+
+    /**
+     * Forgets the edits of a plot, when its content is replaced as a whole.
+     */
+    public void clear(final Plot plot) {
+        final var ring = rings.get(plot.getId());
+        if (ring != null) {
+            ring.clear();
+        }
+    }
+
+    /**
+     * Reverts the last edits of the plot, in batches. The entries of an edit are reverted in the reverse order they
+     * were recorded.
+     *
+     * @return the number of reverted edits
+     */
+    public int undo(final Plot plot, final int count, final Runnable callback) {
+        final var ring = rings.get(plot.getId());
+        if (ring == null || count <= 0) {
+            return 0;
+        }
+        var entries = 0;
+        var edits = 0;
+        while (edits < count && entries < ring.cursor) {
+            entries++;
+            if (!ring.chained[ring.index(ring.cursor - entries)]) {
+                edits++;
+            }
+        }
+        if (entries == 0) {
+            return 0;
+        }
+        final var positions = new int[entries];
+        final var states = new long[entries];
+        for (int i = 0; i < entries; i++) {
+            final var index = ring.index(ring.cursor - 1 - i);
+            positions[i] = ring.positions[index];
+            states[i] = ring.before[index];
+        }
+        ring.cursor -= entries;
+        replay(positions, states, callback);
+        return edits;
+    }
+
+    /**
+     * Applies again the last undone edits of the plot, in batches.
+     *
+     * @return the number of applied edits
+     */
+    public int redo(final Plot plot, final int count, final Runnable callback) {
+        final var ring = rings.get(plot.getId());
+        if (ring == null || count <= 0) {
+            return 0;
+        }
+        var entries = 0;
+        var edits = 0;
+        while (entries < ring.size - ring.cursor) {
+            if (!ring.chained[ring.index(ring.cursor + entries)]) {
+                if (edits == count) {
+                    break;
+                }
+                edits++;
+            }
+            entries++;
+        }
+        if (entries == 0) {
+            return 0;
+        }
+        final var positions = new int[entries];
+        final var states = new long[entries];
+        for (int i = 0; i < entries; i++) {
+            final var index = ring.index(ring.cursor + i);
+            positions[i] = ring.positions[index];
+            states[i] = ring.after[index];
+        }
+        ring.cursor += entries;
+        replay(positions, states, callback);
+        return edits;
+    }
+
+    private void replay(final int[] positions, final long[] states, final Runnable callback) {
+        BatchTask.start(
+                positions.length,
+                RouterConfig.PASTE_BATCH_SIZE.num(),
+                i -> {
+                    final var tile = Vars.world.tile(positions[i]);
+                    if (tile != null) {
+                        TileStates.apply(tile, states[i]);
+                    }
+                },
+                callback);
+    }
+
+    private EditRing getRing(final Plot plot) {
+        var ring = rings.get(plot.getId());
+        if (ring == null) {
+            ring = new EditRing(Math.max(1, RouterConfig.JOURNAL_SIZE.num()));
+            rings.put(plot.getId(), ring);
+        }
+        return ring;
+    }
+
+    // Edits before the cursor can be undone, edits after it can be redone
+    // An entry is chained when it belongs to the same edit as the entry before it
+    private static final class EditRing {
+
+        private final int[] positions;
+        private final long[] before;
+        private final long[] after;
+        private final boolean[] chained;
+        private int start = 0;
+        private int size = 0;
+        private int cursor = 0;
+
+        private EditRing(final int capacity) {
+            this.positions = new int[capacity];
+            this.before = new long[capacity];
+            this.after = new long[capacity];
+            this.chained = new boolean[capacity];
+        }
+
+        private void record(final int position, final long before, final long after, final boolean chained) {
+            // A new edit discards the undone edits
+            size = cursor;
+            if (size == positions.length) {
+                // Drop the oldest edit as a whole, never leave half of one
+                do {
+                    start = (start + 1) % positions.length;
+                    size--;
+                } while (size > 0 && this.chained[index(0)]);
+            }
+            final var index = index(size);
+            this.positions[index] = position;
+            this.before[index] = before;
+            this.after[index] = after;
+            // An edit bigger than the ring loses its first entries
+            this.chained[index] = chained && size > 0;
+            size++;
+            cursor = size;
+        }
+
+        private int index(final int offset) {
+            return (start + offset) % positions.length;
+        }
+
+        private void clear() {
+            start = 0;
+            size = 0;
+            cursor = 0;
+        }
+    }
+}
@@ -18,15 +18,34 @@
  */
 package fr.xpdustry.router.service;
 
+import arc.struct.Bits;
 import fr.xpdustry.router.model.Plot;
 import fr.xpdustry.router.model.PlotArea;
 import java.util.List;
 import java.util.Optional;
+import org.checkerframework.checker.nullness.qual.Nullable;
 
 public interface PlotManager {
 
     Optional<Plot> findPlotById(final int id);
 
+    @Nullable Plot findPlotAt(final int x, final int y);
+
+    /**
+     * Returns the id of the plot at the given tile, or {@code 0} if there is none.
+     */
+    int findPlotIdAt(final int x, final int y);
+
+    /**
+     * Returns whether the player, by its id in the player registry, is trusted in the plot at the given tile.
+     */
+    boolean isTrusted(final int player, final int x, final int y);
+
+    /**
+     * Returns the ids of the plots the player is trusted in, kept up to date by this manager. Do not modify it.
+     */
+    Bits getTrustedPlots(final int player);
+
     List<Plot> findPlotsByOwner(final String owner);
 
     List<Plot> findPlotsByTrusted(final String trusted);
@@ -35,7 +54,30 @@ public interface PlotManager {
 
     long countPlots();
 
+    long countFreePlots();
+
     long countPlotsByOwner(final String owner);
 
+    /**
+     * Marks the plot as modified in all the dirty sets.
+     */
+    void markDirty(final Plot plot);
+
+    /**
+     * Creates a set tracking the plots modified from now on, including ownership and membership changes.
+     * The sets are cleared when the plots are replaced.
+     */
+    PlotDirtySet createDirtySet();
+
+    /**
+     * Replaces all the plots with new ones, created from the given areas.
+     */
     void createPlots(final List<PlotArea> areas);
+
+    /**
+     * Adds new plots created from the given areas, without touching the existing ones.
+     *
+     * @return the added plots
+     */
+    List<Plot> addPlots(final List<PlotArea> areas);
 }
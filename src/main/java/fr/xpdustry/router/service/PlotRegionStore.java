@@ -0,0 +1,268 @@
+/*
+ * Router, a plugin for sharing schematics.
+ *
+ * Copyright (C) 2022 Xpdustry
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package fr.xpdustry.router.service;
+
+import arc.struct.IntIntMap;
+import arc.util.Log;
+import fr.xpdustry.distributor.api.event.EventHandler;
+import fr.xpdustry.distributor.api.plugin.PluginListener;
+import fr.xpdustry.router.event.PlotsAddEvent;
+import fr.xpdustry.router.event.PlotsCreateEvent;
+import fr.xpdustry.router.model.Plot;
+import fr.xpdustry.router.util.BatchTask;
+import fr.xpdustry.router.util.TileStates;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import mindustry.Vars;
+import mindustry.game.Team;
+import mindustry.world.blocks.ConstructBlock.ConstructBuild;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * Keeps a raw copy of the tiles of each plot in a memory-mapped file, with one fixed-size slot per plot.
+ * Each tile is stored as floor, block, team, rotation and config, the blocks being only stored on their center tile.
+ * Only simple configs (numbers, positions, content and booleans) are kept.
+ */
+public final class PlotRegionStore implements PluginListener {
+
+    private static final int MAGIC = 0x52524547; // RREG
+    private static final int VERSION = 1;
+    private static final int FILE_HEADER_SIZE = 16;
+    private static final int SLOT_HEADER_SIZE = 8;
+    private static final int TILE_SIZE = 11;
+
+    private final IntIntMap slots = new IntIntMap();
+    private final Path file;
+    private @Nullable FileChannel channel = null;
+    private @Nullable MappedByteBuffer buffer = null;
+    private int slotSize = 0;
+    private int capacity = 0;
+    private int tiles = 0;
+
+    public PlotRegionStore(final Path file) {
+        this.file = file;
+    }
+
+    @EventHandler
+    public void onPlotsCreate(final PlotsCreateEvent event) {
+        slots.clear();
+        tiles = 0;
+        addSlots(event.plots(), false);
+    }
+
+    @EventHandler
+    public void onPlotsAdd(final PlotsAddEvent event) {
+        addSlots(event.plots(), true);
+    }
+
+    @Override
+    public void onPluginExit() {
+        close();
+    }
+
+    public boolean hasSnapshot(final Plot plot) {
+        final var offset = getSlotOffset(plot);
+        return buffer != null && offset != -1 && buffer.getInt(offset) == 1;
+    }
+
+    /**
+     * Copies the tiles of the plot in its slot, replacing the previous snapshot.
+     */
+    public boolean snapshot(final Plot plot) {
+        final var buffer = this.buffer;
+        final var offset = getSlotOffset(plot);
+        if (buffer == null || offset == -1) {
+            return false;
+        }
+        final var area = plot.getArea();
+        buffer.putInt(offset, 0);
+        buffer.putShort(offset + 4, (short) area.getTileW());
+        buffer.putShort(offset + 6, (short) area.getTileH());
+
+        var position = offset + SLOT_HEADER_SIZE;
+        for (int y = area.getTileY(); y < area.getTileY() + area.getTileH(); y++) {
+            for (int x = area.getTileX(); x < area.getTileX() + area.getTileW(); x++) {
+                final var tile = Vars.world.tile(x, y);
+                final var build = tile == null ? null : tile.build;
+                buffer.putShort(position, tile == null ? 0 : tile.floor().id);
+                if (build != null && build.tile == tile) {
+                    final var block = build instanceof ConstructBuild cons ? cons.current : build.block;
+                    final var config = build instanceof ConstructBuild cons ? cons.lastConfig : build.config();
+                    buffer.putShort(position + 2, block.id);
+                    buffer.put(position + 4, (byte) build.team.id);
+                    buffer.put(position + 5, (byte) build.rotation);
+                    buffer.put(position + 6, TileStates.getConfigType(config));
+                    buffer.putInt(position + 7, TileStates.getConfigValue(config));
+                } else {
+                    buffer.putShort(position + 2, (short) 0);
+                    buffer.put(position + 4, (byte) 0);
+                    buffer.put(position + 5, (byte) 0);
+                    buffer.put(position + 6, TileStates.CONFIG_NONE);
+                    buffer.putInt(position + 7, 0);
+                }
+                position += TILE_SIZE;
+            }
+        }
+        // Mark the slot as complete last, a partial write is never restored
+        buffer.putInt(offset, 1);
+        return true;
+    }
+
+    /**
+     * Replaces the tiles of the plot with its last snapshot server-side, at most {@code batch} tiles per tick. The
+     * players are synced by the caller, see {@link PlotSync}.
+     */
+    public boolean restore(final Plot plot, final int batch, final Runnable callback) {
+        final var buffer = this.buffer;
+        final var offset = getSlotOffset(plot);
+        final var area = plot.getArea();
+        if (buffer == null
+                || offset == -1
+                || buffer.getInt(offset) != 1
+                || buffer.getShort(offset + 4) != area.getTileW()
+                || buffer.getShort(offset + 6) != area.getTileH()) {
+            return false;
+        }
+        final var w = area.getTileW();
+        final var size = w * area.getTileH();
+        final var start = offset + SLOT_HEADER_SIZE;
+
+        // First pass, remove the buildings and set the floors
+        BatchTask.start(
+                size,
+                batch,
+                i -> {
+                    final var tile = Vars.world.tile(area.getTileX() + (i % w), area.getTileY() + (i / w));
+                    if (tile != null) {
+                        if (tile.build != null) {
+                            tile.build.tile.setAir();
+                        }
+                        final var floor = Vars.content.block(buffer.getShort(start + (i * TILE_SIZE)));
+                        if (floor != null && floor.isFloor()) {
+                            tile.setFloor(floor.asFloor());
+                        }
+                    }
+                },
+                // Second pass, place the buildings from their center
+                () -> BatchTask.start(
+                        size,
+                        batch,
+                        i -> {
+                            final var position = start + (i * TILE_SIZE);
+                            final var block = Vars.content.block(buffer.getShort(position + 2));
+                            final var tile = Vars.world.tile(area.getTileX() + (i % w), area.getTileY() + (i / w));
+                            if (tile != null && block != null && block.id != 0) {
+                                tile.setBlock(
+                                        block, Team.get(buffer.get(position + 4) & 0xFF), buffer.get(position + 5));
+                                final var config =
+                                        TileStates.getConfig(buffer.get(position + 6), buffer.getInt(position + 7));
+                                if (tile.build != null && config != null) {
+                                    tile.build.configured(null, config);
+                                }
+                            }
+                        },
+                        callback));
+        return true;
+    }
+
+    private void addSlots(final List<Plot> plots, final boolean growing) {
+        final var previous = slots.size;
+        for (final var plot : plots) {
+            tiles = Math.max(tiles, plot.getArea().getTileW() * plot.getArea().getTileH());
+            slots.put(plot.getId(), slots.size);
+        }
+        final var slotSize = SLOT_HEADER_SIZE + (tiles * TILE_SIZE);
+        try {
+            // The current mapping is reused as long as it has room for the new slots
+            if (growing && buffer != null && slotSize == this.slotSize && slots.size <= capacity) {
+                resize(previous, slots.size);
+            } else {
+                map(slotSize, slots.size, growing);
+            }
+        } catch (final IOException exception) {
+            Log.err("Router: Failed to map the plot regions.", exception);
+            close();
+        }
+    }
+
+    private int getSlotOffset(final Plot plot) {
+        final var slot = slots.get(plot.getId(), -1);
+        return slot == -1 ? -1 : FILE_HEADER_SIZE + (slot * slotSize);
+    }
+
+    // When growing, the slots of the previous plots are kept as long as their size did not change.
+    // A mapping can't be released before it is garbage collected, so the capacity doubles to remap rarely.
+    private void map(final int slotSize, final int count, final boolean growing) throws IOException {
+        final var capacity = growing ? Math.max(count, this.capacity * 2) : count;
+        close();
+        Files.createDirectories(file.getParent());
+        final var channel = FileChannel.open(
+                file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        final var size = FILE_HEADER_SIZE + ((long) slotSize * capacity);
+        final var buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        final var previous = buffer.getInt(12);
+        final var valid = buffer.getInt(0) == MAGIC
+                && buffer.getInt(4) == VERSION
+                && buffer.getInt(8) == slotSize
+                && (growing ? previous <= count : previous == count);
+        // The plot layout changed, the previous snapshots are unusable
+        for (int i = valid ? previous : 0; i < count; i++) {
+            buffer.putInt(FILE_HEADER_SIZE + (i * slotSize), 0);
+        }
+        buffer.putInt(0, MAGIC);
+        buffer.putInt(4, VERSION);
+        buffer.putInt(8, slotSize);
+        buffer.putInt(12, count);
+        this.channel = channel;
+        this.buffer = buffer;
+        this.slotSize = slotSize;
+        this.capacity = capacity;
+    }
+
+    private void resize(final int previous, final int count) {
+        final var buffer = this.buffer;
+        if (buffer == null) {
+            return;
+        }
+        for (int i = previous; i < count; i++) {
+            buffer.putInt(FILE_HEADER_SIZE + (i * slotSize), 0);
+        }
+        buffer.putInt(12, count);
+    }
+
+    private void close() {
+        if (buffer != null) {
+            buffer.force();
+            buffer = null;
+        }
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (final IOException exception) {
+                Log.err("Router: Failed to close the plot regions.", exception);
+            }
+            channel = null;
+        }
+    }
+}
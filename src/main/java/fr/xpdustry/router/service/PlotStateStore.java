@@ -0,0 +1,255 @@
+/*
+ * Router, a plugin for sharing schematics.
+ *
+ * Copyright (C) 2022 Xpdustry
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package fr.xpdustry.router.service;
+
+import arc.Core;
+import arc.files.Fi;
+import arc.util.Interval;
+import arc.util.Log;
+import arc.util.Time;
+import fr.xpdustry.distributor.api.plugin.PluginListener;
+import fr.xpdustry.router.RouterConfig;
+import fr.xpdustry.router.RouterPlugin;
+import fr.xpdustry.router.model.Plot;
+import fr.xpdustry.router.model.PlotArea;
+import fr.xpdustry.router.util.WorldSync;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import mindustry.game.Schematic;
+import mindustry.game.Schematics;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * Periodically saves the owner, the members and the content of the modified plots, and restores them when the
+ * router server starts. Each plot has its own files, so only the modified plots are written.
+ */
+public final class PlotStateStore implements PluginListener {
+
+    private static final int VERSION = 1;
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        final var thread = new Thread(runnable, "router-plot-store");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final PlotDirtySet dirty;
+    private final Interval timer = new Interval();
+    private final RouterPlugin router;
+    private final Path directory;
+    // The modified plots are not drained while a restore is read, so they can be told apart from the saved ones
+    private boolean restoring = false;
+
+    public PlotStateStore(final RouterPlugin router, final Path directory) {
+        this.router = router;
+        this.directory = directory;
+        this.dirty = router.getPlotManager().createDirtySet();
+    }
+
+    @Override
+    public void onPluginUpdate() {
+        final var interval = RouterConfig.SNAPSHOT_INTERVAL.num();
+        if (interval > 0 && timer.get(interval * Time.toSeconds)) {
+            snapshot();
+        }
+    }
+
+    @Override
+    public void onPluginExit() {
+        snapshot();
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(10L, TimeUnit.SECONDS)) {
+                Log.warn("Router: Timed out while saving the plots.");
+            }
+        } catch (final InterruptedException exception) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Captures the modified plots on the main thread and writes them in the background.
+     */
+    public void snapshot() {
+        if (!router.isActive() || restoring || dirty.isEmpty()) {
+            return;
+        }
+        final var manager = router.getPlotManager();
+        dirty.drain(id -> {
+            manager.findPlotById(id).ifPresent(plot -> {
+                final var state = new PlotState(
+                        plot.getId(),
+                        plot.getArea(),
+                        plot.getOwner(),
+                        List.copyOf(plot.getMembers()),
+                        plot.getArea().getSchematic());
+                executor.execute(() -> {
+                    try {
+                        write(state);
+                    } catch (final IOException exception) {
+                        Log.err("Router: Failed to save the plot #" + state.id(), exception);
+                    }
+                });
+            });
+        });
+    }
+
+    /**
+     * Reads the saved plots in the background, then applies them on the main thread and resyncs the players.
+     * The plots modified by the players in the meantime are not restored.
+     * The returned future completes with the number of restored plots.
+     */
+    public CompletableFuture<Integer> restore() {
+        final var start = System.nanoTime();
+        final var plots = router.getPlotManager().findAllPlots();
+        final var future = new CompletableFuture<Integer>();
+        restoring = true;
+        executor.execute(() -> {
+            final var states = new ArrayList<PlotState>();
+            for (final var plot : plots) {
+                try {
+                    final var state = read(plot);
+                    if (state != null) {
+                        states.add(state);
+                    }
+                } catch (final IOException | RuntimeException exception) {
+                    Log.err("Router: Failed to restore the plot #" + plot.getId(), exception);
+                }
+            }
+            Core.app.post(() -> {
+                restoring = false;
+                final var restored = apply(states);
+                Log.info(
+                        "Router: Restored @ plots in @ms.",
+                        restored,
+                        TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+                future.complete(restored);
+            });
+        });
+        return future;
+    }
+
+    private int apply(final List<PlotState> states) {
+        final var manager = router.getPlotManager();
+        var restored = 0;
+        for (final var state : states) {
+            final var plot = manager.findPlotById(state.id()).orElse(null);
+            if (plot == null || !plot.getArea().equals(state.area())) {
+                Log.warn("Router: The saved plot #@ does not match the current plots, skipping it.", state.id());
+                continue;
+            }
+            if (dirty.isMarked(plot.getId())) {
+                Log.warn("Router: The plot #@ was modified while it was restored, skipping it.", state.id());
+                continue;
+            }
+            plot.setOwner(state.owner());
+            state.members().forEach(plot::addMember);
+            final var schematic = state.schematic();
+            if (schematic != null) {
+                plot.getArea().setSchematic(schematic, 0, () -> {});
+            }
+            // The restored plot is already saved
+            dirty.clear(plot.getId());
+            restored++;
+        }
+        if (restored > 0) {
+            WorldSync.resyncAll();
+        }
+        return restored;
+    }
+
+    private void write(final PlotState state) throws IOException {
+        Files.createDirectories(directory);
+        final var owner = state.owner();
+        final var schematic = state.schematic();
+
+        final var content = directory.resolve(state.id() + ".msch");
+        if (schematic != null) {
+            final var temporary = directory.resolve(state.id() + ".msch.tmp");
+            Schematics.write(schematic, new Fi(temporary.toFile()));
+            Files.move(temporary, content, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } else {
+            Files.deleteIfExists(content);
+        }
+
+        final var temporary = directory.resolve(state.id() + ".dat.tmp");
+        try (final var output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary)))) {
+            output.writeInt(VERSION);
+            output.writeInt(state.area().getTileX());
+            output.writeInt(state.area().getTileY());
+            output.writeInt(state.area().getTileW());
+            output.writeInt(state.area().getTileH());
+            output.writeBoolean(owner != null);
+            if (owner != null) {
+                output.writeUTF(owner);
+            }
+            output.writeInt(state.members().size());
+            for (final var member : state.members()) {
+                output.writeUTF(member);
+            }
+            output.writeBoolean(schematic != null);
+        }
+        Files.move(
+                temporary,
+                directory.resolve(state.id() + ".dat"),
+                StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private @Nullable PlotState read(final Plot plot) throws IOException {
+        final var meta = directory.resolve(plot.getId() + ".dat");
+        if (!Files.exists(meta)) {
+            return null;
+        }
+        try (final var input = new DataInputStream(new BufferedInputStream(Files.newInputStream(meta)))) {
+            if (input.readInt() != VERSION) {
+                return null;
+            }
+            final var area = PlotArea.of(input.readInt(), input.readInt(), input.readInt(), input.readInt());
+            // The plot layout changed, the saved plot is obsolete
+            if (!area.equals(plot.getArea())) {
+                return null;
+            }
+            final var owner = input.readBoolean() ? input.readUTF() : null;
+            final var size = input.readInt();
+            final var members = new ArrayList<String>(size);
+            for (int i = 0; i < size; i++) {
+                members.add(input.readUTF());
+            }
+            final var content = directory.resolve(plot.getId() + ".msch");
+            final var schematic =
+                    input.readBoolean() && Files.exists(content) ? Schematics.read(new Fi(content.toFile())) : null;
+            return new PlotState(plot.getId(), area, owner, members, schematic);
+        }
+    }
+
+    private record PlotState(
+            int id, PlotArea area, @Nullable String owner, List<String> members, @Nullable Schematic schematic) {}
+}
@@ -0,0 +1,88 @@
+/*
+ * Router, a plugin for sharing schematics.
+ *
+ * Copyright (C) 2022 Xpdustry
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package fr.xpdustry.router.service;
+
+import arc.util.Interval;
+import arc.util.Time;
+import fr.xpdustry.distributor.api.event.EventHandler;
+import fr.xpdustry.distributor.api.plugin.PluginListener;
+import fr.xpdustry.router.RouterPlugin;
+import fr.xpdustry.router.event.PlotsCreateEvent;
+import fr.xpdustry.router.model.Plot;
+import fr.xpdustry.router.util.WorldSync;
+
+/**
+ * Sends the plots modified server-side to the players. Vanilla has no packet for a whole area, so the players viewing
+ * the plot receive the world again right away, and the others once they look at it, instead of every player at once.
+ */
+public final class PlotSync implements PluginListener {
+
+    private final Interval timer = new Interval();
+    private final RouterPlugin router;
+
+    public PlotSync(final RouterPlugin router) {
+        this.router = router;
+    }
+
+    @EventHandler
+    public void onPlotsCreate(final PlotsCreateEvent event) {
+        // The players receive the new world anyway
+        this.router.getPlayerSessions().forEach(session -> session.getOutdatedPlots().clear());
+    }
+
+    @Override
+    public void onPluginUpdate() {
+        if (!timer.get(Time.toSeconds / 2F)) {
+            return;
+        }
+        final var manager = this.router.getPlotManager();
+        this.router.getPlayerSessions().forEach(session -> {
+            final var outdated = session.getOutdatedPlots();
+            if (outdated.isEmpty() || session.getPlayer().con == null) {
+                return;
+            }
+            for (int id = outdated.nextSetBit(0); id != -1; id = outdated.nextSetBit(id + 1)) {
+                final var plot = manager.findPlotById(id).orElse(null);
+                if (plot != null && session.isViewing(plot.getArea())) {
+                    resync(session);
+                    return;
+                }
+            }
+        });
+    }
+
+    /**
+     * Syncs the plot with the players, once its tiles have been modified server-side.
+     */
+    public void sync(final Plot plot) {
+        this.router.getPlayerSessions().forEach(session -> {
+            if (session.getPlayer().con != null && session.isViewing(plot.getArea())) {
+                resync(session);
+            } else {
+                session.getOutdatedPlots().set(plot.getId());
+            }
+        });
+    }
+
+    // The whole world is sent, so every outdated plot of the player is synced at once
+    private void resync(final PlayerSession session) {
+        session.getOutdatedPlots().clear();
+        WorldSync.resync(session.getPlayer());
+    }
+}
@@ -0,0 +1,142 @@
+/*
+ * Router, a plugin for sharing schematics.
+ *
+ * Copyright (C) 2022 Xpdustry
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package fr.xpdustry.router.service;
+
+import arc.Core;
+import arc.files.Fi;
+import arc.util.Log;
+import fr.xpdustry.distributor.api.plugin.PluginListener;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+import mindustry.game.Schematic;
+import mindustry.game.Schematics;
+
+/**
+ * Stores the schematics of the players on disk, in the compressed msch format. The file operations run on a
+ * dedicated thread, the returned futures are completed on the main thread.
+ */
+public final class SchematicStore implements PluginListener {
+
+    public static final int MAX_SCHEMATICS_PER_PLAYER = 16;
+    public static final Pattern NAME_PATTERN = Pattern.compile("^[a-zA-Z0-9_-]{1,32}$");
+
+    private static final String EXTENSION = ".msch";
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        final var thread = new Thread(runnable, "router-schematic-store");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final Path directory;
+
+    public SchematicStore(final Path directory) {
+        this.directory = directory;
+    }
+
+    @Override
+    public void onPluginExit() {
+        // Let the queued saves finish, the thread is a daemon and would be killed with the server
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(10L, TimeUnit.SECONDS)) {
+                Log.warn("Router: Timed out while saving the schematics.");
+            }
+        } catch (final InterruptedException exception) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public CompletableFuture<Void> save(final String owner, final String name, final Schematic schematic) {
+        checkName(name);
+        return submit(() -> {
+            final var folder = getFolder(owner);
+            final var file = folder.resolve(name + EXTENSION);
+            Files.createDirectories(folder);
+            if (!Files.exists(file) && list(folder).size() >= MAX_SCHEMATICS_PER_PLAYER) {
+                throw new IOException("You can't save more than " + MAX_SCHEMATICS_PER_PLAYER + " schematics.");
+            }
+            schematic.tags.put("name", name);
+            Schematics.write(schematic, new Fi(file.toFile()));
+            return null;
+        });
+    }
+
+    public CompletableFuture<Optional<Schematic>> load(final String owner, final String name) {
+        checkName(name);
+        return submit(() -> {
+            final var file = getFolder(owner).resolve(name + EXTENSION);
+            return Files.exists(file) ? Optional.of(Schematics.read(new Fi(file.toFile()))) : Optional.empty();
+        });
+    }
+
+    public CompletableFuture<Boolean> delete(final String owner, final String name) {
+        checkName(name);
+        return submit(() -> Files.deleteIfExists(getFolder(owner).resolve(name + EXTENSION)));
+    }
+
+    public CompletableFuture<List<String>> list(final String owner) {
+        return submit(() -> list(getFolder(owner)));
+    }
+
+    private List<String> list(final Path folder) throws IOException {
+        if (!Files.isDirectory(folder)) {
+            return List.of();
+        }
+        try (final var files = Files.list(folder)) {
+            return files.map(path -> path.getFileName().toString())
+                    .filter(file -> file.endsWith(EXTENSION))
+                    .map(file -> file.substring(0, file.length() - EXTENSION.length()))
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    private Path getFolder(final String owner) {
+        // Player uuids are base64 encoded, make them safe for file names
+        return directory.resolve(owner.replace('/', '_').replace('+', '-').replace("=", ""));
+    }
+
+    private <T> CompletableFuture<T> submit(final Callable<T> task) {
+        final var future = new CompletableFuture<T>();
+        executor.execute(() -> {
+            try {
+                final var result = task.call();
+                Core.app.post(() -> future.complete(result));
+            } catch (final Exception exception) {
+                Core.app.post(() -> future.completeExceptionally(exception));
+            }
+        });
+        return future;
+    }
+
+    private static void checkName(final String name) {
+        if (!NAME_PATTERN.matcher(name).matches()) {
+            throw new IllegalArgumentException("Invalid schematic name: " + name);
+        }
+    }
+}
@@ -18,35 +18,95 @@
  */
 package fr.xpdustry.router.service;
 
+import arc.Events;
+import arc.struct.Bits;
+import fr.xpdustry.router.event.PlotMembersChangeEvent;
+import fr.xpdustry.router.event.PlotOwnerChangeEvent;
+import fr.xpdustry.router.event.PlotsAddEvent;
+import fr.xpdustry.router.event.PlotsCreateEvent;
+import fr.xpdustry.router.model.PlayerRegistry;
 import fr.xpdustry.router.model.Plot;
 import fr.xpdustry.router.model.PlotArea;
-import java.util.HashMap;
+import fr.xpdustry.router.model.PlotListener;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
-import java.util.Map;
 import java.util.Optional;
+import org.checkerframework.checker.nullness.qual.Nullable;
 
 public final class SimplePlotManager implements PlotManager {
 
-    private final Map<Integer, Plot> plots = new HashMap<>();
+    private static final int FIRST_PLOT_ID = 100;
+
+    private final List<Plot> plots = new ArrayList<>();
+    private final PlayerPlots owned = new PlayerPlots();
+    private final PlayerPlots trusted = new PlayerPlots();
+    private final List<PlotDirtySet> dirtySets = new ArrayList<>();
+    private final PlotListener indexer = new PlotIndexer();
+    private final PlayerRegistry players;
+    private int ownedCount = 0;
+
+    // Tile to plot id lookup table, 0 means the tile is not in a plot
+    private short[] grid = new short[0];
+    private int gridWidth = 0;
+    private int gridHeight = 0;
+
+    public SimplePlotManager(final PlayerRegistry players) {
+        this.players = players;
+    }
+
+    public SimplePlotManager() {
+        this(new PlayerRegistry());
+    }
 
     @Override
     public Optional<Plot> findPlotById(final int id) {
-        return Optional.ofNullable(plots.get(id));
+        final var index = id - FIRST_PLOT_ID;
+        return index >= 0 && index < plots.size() ? Optional.of(plots.get(index)) : Optional.empty();
+    }
+
+    @Override
+    public @Nullable Plot findPlotAt(final int x, final int y) {
+        if (x < 0 || y < 0 || x >= gridWidth || y >= gridHeight) {
+            return null;
+        }
+        final int id = grid[x + (y * gridWidth)];
+        return id == 0 ? null : plots.get(id - FIRST_PLOT_ID);
+    }
+
+    @Override
+    public int findPlotIdAt(final int x, final int y) {
+        if (x < 0 || y < 0 || x >= gridWidth || y >= gridHeight) {
+            return 0;
+        }
+        return grid[x + (y * gridWidth)];
+    }
+
+    @Override
+    public boolean isTrusted(final int player, final int x, final int y) {
+        final var id = findPlotIdAt(x, y);
+        final var bits = trusted.find(player);
+        return id != 0 && bits != null && bits.get(id);
+    }
+
+    @Override
+    public Bits getTrustedPlots(final int player) {
+        return trusted.get(player);
     }
 
     @Override
     public List<Plot> findPlotsByOwner(final String owner) {
-        return plots.values().stream().filter(p -> owner.equals(p.getOwner())).toList();
+        return getPlots(owned.find(players.find(owner)));
     }
 
     @Override
     public List<Plot> findPlotsByTrusted(final String trusted) {
-        return plots.values().stream().filter(p -> p.isTrusted(trusted)).toList();
+        return getPlots(this.trusted.find(players.find(trusted)));
     }
 
     @Override
     public List<Plot> findAllPlots() {
-        return List.copyOf(plots.values());
+        return List.copyOf(plots);
     }
 
     @Override
@@ -54,17 +114,182 @@ public final class SimplePlotManager implements PlotManager {
         return plots.size();
     }
 
+    @Override
+    public long countFreePlots() {
+        return plots.size() - ownedCount;
+    }
+
     @Override
     public long countPlotsByOwner(final String owner) {
-        return plots.values().stream().filter(p -> owner.equals(p.getOwner())).count();
+        final var bits = owned.find(players.find(owner));
+        var count = 0L;
+        if (bits != null) {
+            for (int id = bits.nextSetBit(0); id != -1; id = bits.nextSetBit(id + 1)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Override
+    public void markDirty(final Plot plot) {
+        for (int i = 0; i < dirtySets.size(); i++) {
+            dirtySets.get(i).mark(plot.getId());
+        }
+    }
+
+    @Override
+    public PlotDirtySet createDirtySet() {
+        final var set = new PlotDirtySet();
+        dirtySets.add(set);
+        return set;
     }
 
     @Override
     public void createPlots(final List<PlotArea> areas) {
+        checkPlotCount(areas.size());
+        this.dirtySets.forEach(PlotDirtySet::clear);
         this.plots.clear();
+        this.owned.clear();
+        this.trusted.clear();
+        this.ownedCount = 0;
         for (int i = 0; i < areas.size(); i++) {
-            final int id = 100 + i;
-            plots.put(id, Plot.of(areas.get(i), id));
+            plots.add(Plot.of(areas.get(i), FIRST_PLOT_ID + i, indexer, players));
+        }
+        updateGrid();
+        Events.fire(new PlotsCreateEvent(List.copyOf(plots)));
+    }
+
+    @Override
+    public List<Plot> addPlots(final List<PlotArea> areas) {
+        checkPlotCount(plots.size() + areas.size());
+        final var added = new ArrayList<Plot>(areas.size());
+        for (final var area : areas) {
+            final var plot = Plot.of(area, FIRST_PLOT_ID + plots.size(), indexer, players);
+            plots.add(plot);
+            added.add(plot);
+        }
+        updateGrid();
+        final var result = List.copyOf(added);
+        Events.fire(new PlotsAddEvent(result));
+        return result;
+    }
+
+    private void checkPlotCount(final int count) {
+        if (FIRST_PLOT_ID + count - 1 > Short.MAX_VALUE) {
+            throw new IllegalArgumentException("Too many plots: " + count);
+        }
+    }
+
+    private void updateGrid() {
+        var width = 0;
+        var height = 0;
+        for (final var plot : plots) {
+            width = Math.max(width, plot.getArea().getTileX() + plot.getArea().getTileW());
+            height = Math.max(height, plot.getArea().getTileY() + plot.getArea().getTileH());
+        }
+
+        this.gridWidth = width;
+        this.gridHeight = height;
+        this.grid = new short[width * height];
+        for (final var plot : plots) {
+            final var area = plot.getArea();
+            for (int y = Math.max(area.getTileY(), 0); y < area.getTileY() + area.getTileH(); y++) {
+                for (int x = Math.max(area.getTileX(), 0); x < area.getTileX() + area.getTileW(); x++) {
+                    grid[x + (y * width)] = (short) plot.getId();
+                }
+            }
+        }
+    }
+
+    private List<Plot> getPlots(final @Nullable Bits bits) {
+        if (bits == null || bits.isEmpty()) {
+            return List.of();
+        }
+        final var result = new ArrayList<Plot>();
+        for (int id = bits.nextSetBit(0); id != -1; id = bits.nextSetBit(id + 1)) {
+            result.add(plots.get(id - FIRST_PLOT_ID));
+        }
+        return List.copyOf(result);
+    }
+
+    // Keeps the reverse indexes in sync with the plots, called on each ownership or membership change
+    private final class PlotIndexer implements PlotListener {
+
+        @Override
+        public void onPlotOwnerChange(final Plot plot, final int previous) {
+            final var owner = plot.getOwnerId();
+            if (previous == PlayerRegistry.NONE) {
+                ownedCount++;
+            } else if (owner == PlayerRegistry.NONE) {
+                ownedCount--;
+            }
+            if (previous != PlayerRegistry.NONE) {
+                owned.set(previous, plot.getId(), false);
+                trusted.set(previous, plot.getId(), plot.isTrusted(previous));
+            }
+            if (owner != PlayerRegistry.NONE) {
+                owned.set(owner, plot.getId(), true);
+                trusted.set(owner, plot.getId(), true);
+            }
+            markDirty(plot);
+            Events.fire(new PlotOwnerChangeEvent(
+                    plot, previous == PlayerRegistry.NONE ? null : players.getUuid(previous)));
+        }
+
+        @Override
+        public void onPlotMemberAdd(final Plot plot, final int member) {
+            trusted.set(member, plot.getId(), true);
+            markDirty(plot);
+            Events.fire(new PlotMembersChangeEvent(plot));
+        }
+
+        @Override
+        public void onPlotMemberRemove(final Plot plot, final int member) {
+            trusted.set(member, plot.getId(), plot.isTrusted(member));
+            markDirty(plot);
+            Events.fire(new PlotMembersChangeEvent(plot));
+        }
+    }
+
+    // Plot id bitsets indexed by player id, a player keeps the same bitset once it is created
+    private static final class PlayerPlots {
+
+        private Bits[] values = new Bits[0];
+
+        private @Nullable Bits find(final int player) {
+            return player >= 0 && player < values.length ? values[player] : null;
+        }
+
+        private Bits get(final int player) {
+            if (player >= values.length) {
+                values = Arrays.copyOf(values, Math.max(player + 1, values.length * 2));
+            }
+            var bits = values[player];
+            if (bits == null) {
+                bits = new Bits();
+                values[player] = bits;
+            }
+            return bits;
+        }
+
+        private void set(final int player, final int id, final boolean present) {
+            if (present) {
+                get(player).set(id);
+            } else {
+                final var bits = find(player);
+                if (bits != null) {
+                    bits.clear(id);
+                }
+            }
+        }
+
+        private void clear() {
+            for (final var bits : values) {
+                if (bits != null) {
+                    bits.clear();
+                }
+            }
         }
     }
 }
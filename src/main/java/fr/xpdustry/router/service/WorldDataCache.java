@@ -0,0 +1,140 @@
+/*
+ * Router, a plugin for sharing schematics.
+ *
+ * Copyright (C) 2022 Xpdustry
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package fr.xpdustry.router.service;
+
+import arc.struct.StringMap;
+import arc.util.Log;
+import arc.util.Time;
+import fr.xpdustry.distributor.api.event.EventHandler;
+import fr.xpdustry.distributor.api.plugin.PluginListener;
+import fr.xpdustry.router.RouterPlugin;
+import fr.xpdustry.router.util.Metrics;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import mindustry.game.EventType;
+import mindustry.io.SaveIO;
+import mindustry.io.SaveVersion;
+import mindustry.io.versions.Save7;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * Keeps the serialized map sent to the players, so a burst of joins or resyncs only serializes it once.
+ * <p>
+ * Vanilla serializes the world data of a joining player in its own connect handler, with the current save writer.
+ * The save writer is replaced by one serving the cached map to the network, real saves are always written from the
+ * world. The cache is invalidated when a plot is modified, and when a building is finished or destroyed. It also
+ * expires after 30 seconds, so the state of the running buildings sent to the players is never too old.
+ */
+public final class WorldDataCache implements PluginListener {
+
+    private static final long MAX_AGE_MILLIS = 30_000L;
+
+    private final PlotDirtySet dirty;
+    private final RouterPlugin router;
+    private @Nullable SaveVersion vanilla = null;
+    private byte @Nullable [] map = null;
+    private long creation = 0L;
+
+    public WorldDataCache(final RouterPlugin router) {
+        this.router = router;
+        this.dirty = router.getPlotManager().createDirtySet();
+    }
+
+    @Override
+    public void onPluginInit() {
+        final var writer = SaveIO.getSaveWriter();
+        // A subclass of an older version would downgrade the saves
+        if (writer.getClass() != Save7.class) {
+            Log.warn("Router: Unknown save version @, the world data won't be cached.", writer.version);
+            return;
+        }
+        this.vanilla = writer;
+        SaveIO.versionArray.set(SaveIO.versionArray.size - 1, new CachingSave());
+    }
+
+    @Override
+    public void onPluginExit() {
+        final var vanilla = this.vanilla;
+        if (vanilla != null) {
+            SaveIO.versionArray.set(SaveIO.versionArray.size - 1, vanilla);
+        }
+    }
+
+    @EventHandler
+    public void onWorldLoad(final EventType.WorldLoadEvent event) {
+        invalidate();
+    }
+
+    // Constructions finish and buildings die long after the action that caused it
+    @EventHandler
+    public void onBlockBuildEnd(final EventType.BlockBuildEndEvent event) {
+        invalidate();
+    }
+
+    @EventHandler
+    public void onBlockDestroy(final EventType.BlockDestroyEvent event) {
+        invalidate();
+    }
+
+    private void invalidate() {
+        this.map = null;
+    }
+
+    private final class CachingSave extends Save7 {
+
+        private boolean saving = false;
+
+        @Override
+        public void write(final DataOutputStream stream, final StringMap extraTags) throws IOException {
+            saving = true;
+            try {
+                super.write(stream, extraTags);
+            } finally {
+                saving = false;
+            }
+        }
+
+        @Override
+        public void writeMap(final DataOutput stream) throws IOException {
+            if (saving || !router.isActive()) {
+                super.writeMap(stream);
+                return;
+            }
+            if (!dirty.isEmpty()) {
+                dirty.clear();
+                map = null;
+            }
+            var map = WorldDataCache.this.map;
+            if (map == null || Time.timeSinceMillis(creation) > MAX_AGE_MILLIS) {
+                final var start = System.nanoTime();
+                final var output = new ByteArrayOutputStream();
+                try (final var buffer = new DataOutputStream(output)) {
+                    super.writeMap(buffer);
+                }
+                map = output.toByteArray();
+                WorldDataCache.this.map = map;
+                creation = Time.millis();
+                Metrics.WORLD_DATA.record(start);
+            }
+            stream.write(map);
+        }
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ * Router, a plugin for sharing schematics.
+ *
+ * Copyright (C) 2022 Xpdustry
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package fr.xpdustry.router.util;
+
+import arc.Core;
+import java.util.function.IntConsumer;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * Spreads the processing of many elements over several ticks, to avoid lag spikes.
+ */
+public final class BatchTask implements Runnable {
+
+    private final int size;
+    private final int batch;
+    private final IntConsumer action;
+    private final Runnable callback;
+    private final Metrics.@Nullable Timer timer;
+    private int index = 0;
+
+    private BatchTask(
+            final int size,
+            final int batch,
+            final IntConsumer action,
+            final Runnable callback,
+            final Metrics.@Nullable Timer timer) {
+        this.size = size;
+        this.batch = batch;
+        this.action = action;
+        this.callback = callback;
+        this.timer = timer;
+    }
+
+    /**
+     * Calls the action for each index from {@code 0} to {@code size}, with at most {@code batch} calls per tick.
+     * The first batch is processed immediately, a batch size of {@code 0} or less processes everything at once.
+     */
+    public static void start(final int size, final int batch, final IntConsumer action, final Runnable callback) {
+        new BatchTask(size, batch <= 0 ? Integer.MAX_VALUE : batch, action, callback, null).run();
+    }
+
+    /**
+     * Same as {@link #start(int, int, IntConsumer, Runnable)}, but the duration of each batch is recorded in the
+     * timer if there is one, so it reflects the time spent per tick.
+     */
+    public static void start(
+            final int size,
+            final int batch,
+            final IntConsumer action,
+            final Runnable callback,
+            final Metrics.@Nullable Timer timer) {
+        new BatchTask(size, batch <= 0 ? Integer.MAX_VALUE : batch, action, callback, timer).run();
+    }
+
+    @Override
+    public void run() {
+        final var start = System.nanoTime();
+        final var end = (int) Math.min((long) index + batch, size);
+        for (; index < end; index++) {
+            action.accept(index);
+        }
+        if (timer != null) {
+            timer.record(start);
+        }
+        if (index < size) {
+            Core.app.post(this);
+        } else {
+            callback.run();
+        }
+    }
+}
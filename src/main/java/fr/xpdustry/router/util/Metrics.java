@@ -0,0 +1,168 @@
+/*
+ * Router, a plugin for sharing schematics.
+ *
+ * Copyright (C) 2022 Xpdustry
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package fr.xpdustry.router.util;
+
+import arc.struct.IntIntMap;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lightweight counters and latency histograms of the plugin, cheap enough to stay always on.
+ */
+public final class Metrics {
+
+    public static final LongAdder ACTIONS = new LongAdder();
+    public static final LongAdder DENIED_ACTIONS = new LongAdder();
+    public static final LongAdder DROPPED_ACTIONS = new LongAdder();
+    public static final Timer FILTER = new Timer("filter");
+    // The batched operations are timed per tick, a single operation can span several ticks
+    public static final Timer CLEAR = new Timer("clear-batch");
+    public static final Timer GET_SCHEMATIC = new Timer("get-schematic");
+    public static final Timer SET_SCHEMATIC = new Timer("set-schematic-batch");
+    public static final Timer RENDER = new Timer("render");
+    // Only the serializations of the map, the joins served from the cache are not counted
+    public static final Timer WORLD_DATA = new Timer("world-data");
+
+    private static final Timer[] TIMERS = {FILTER, CLEAR, GET_SCHEMATIC, SET_SCHEMATIC, RENDER, WORLD_DATA};
+    private static final int TOP_PLOTS = 5;
+
+    // Only updated from the main thread
+    private static final IntIntMap PLOT_ACTIONS = new IntIntMap();
+    private static long resetTime = System.nanoTime();
+
+    private Metrics() {}
+
+    public static void countPlotAction(final int id) {
+        PLOT_ACTIONS.increment(id);
+    }
+
+    public static void reset() {
+        ACTIONS.reset();
+        DENIED_ACTIONS.reset();
+        DROPPED_ACTIONS.reset();
+        for (final var timer : TIMERS) {
+            timer.reset();
+        }
+        PLOT_ACTIONS.clear();
+        resetTime = System.nanoTime();
+    }
+
+    public static String report() {
+        final var seconds = Math.max(1L, TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - resetTime));
+        final var actions = ACTIONS.sum();
+        final var builder = new StringBuilder(512);
+        builder.append(String.format(
+                Locale.ROOT,
+                "Router stats over %ds:%n  actions: %d (%.1f/s), denied: %d, dropped: %d%n",
+                seconds,
+                actions,
+                actions / (double) seconds,
+                DENIED_ACTIONS.sum(),
+                DROPPED_ACTIONS.sum()));
+        for (final var timer : TIMERS) {
+            timer.append(builder);
+        }
+        builder.append("  hottest plots:");
+        final var ids = PLOT_ACTIONS.keys().toArray();
+        if (ids.isEmpty()) {
+            builder.append(" none");
+        }
+        ids.sort();
+        // Partial selection of the busiest plots, the map is small
+        for (int i = 0; i < Math.min(TOP_PLOTS, ids.size); i++) {
+            var best = i;
+            for (int j = i + 1; j < ids.size; j++) {
+                if (PLOT_ACTIONS.get(ids.get(j)) > PLOT_ACTIONS.get(ids.get(best))) {
+                    best = j;
+                }
+            }
+            ids.swap(i, best);
+            builder.append(" #").append(ids.get(i)).append(" (").append(PLOT_ACTIONS.get(ids.get(i))).append(')');
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Counts the calls of an operation and their duration in a histogram with power of two buckets.
+     */
+    public static final class Timer {
+
+        private static final int BUCKETS = 40;
+
+        private final String name;
+        private final LongAdder count = new LongAdder();
+        private final LongAdder total = new LongAdder();
+        private final LongAdder[] buckets = new LongAdder[BUCKETS];
+
+        private Timer(final String name) {
+            this.name = name;
+            for (int i = 0; i < BUCKETS; i++) {
+                buckets[i] = new LongAdder();
+            }
+        }
+
+        public void record(final long start) {
+            final var elapsed = Math.max(0L, System.nanoTime() - start);
+            count.increment();
+            total.add(elapsed);
+            buckets[Math.min(BUCKETS - 1, 63 - Long.numberOfLeadingZeros(elapsed | 1L))].increment();
+        }
+
+        public long getCount() {
+            return count.sum();
+        }
+
+        // Upper bound of the bucket containing the percentile
+        public long getPercentile(final double percentile) {
+            final var target = (long) Math.ceil(getCount() * percentile);
+            var seen = 0L;
+            for (int i = 0; i < BUCKETS; i++) {
+                seen += buckets[i].sum();
+                if (seen >= target && seen > 0) {
+                    return 1L << (i + 1);
+                }
+            }
+            return 0L;
+        }
+
+        private void reset() {
+            count.reset();
+            total.reset();
+            for (final var bucket : buckets) {
+                bucket.reset();
+            }
+        }
+
+        private void append(final StringBuilder builder) {
+            final var calls = getCount();
+            if (calls == 0) {
+                return;
+            }
+            builder.append(String.format(
+                    Locale.ROOT,
+                    "  %s: %d calls, avg %.1fus, p50 <%.1fus, p99 <%.1fus%n",
+                    name,
+                    calls,
+                    total.sum() / (calls * 1000D),
+                    getPercentile(0.5D) / 1000D,
+                    getPercentile(0.99D) / 1000D));
+        }
+    }
+}
@@ -0,0 +1,157 @@
+/*
+ * Router, a plugin for sharing schematics.
+ *
+ * Copyright (C) 2022 Xpdustry
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package fr.xpdustry.router.util;
+
+import arc.math.geom.Point2;
+import mindustry.Vars;
+import mindustry.ctype.ContentType;
+import mindustry.ctype.UnlockableContent;
+import mindustry.game.Team;
+import mindustry.world.Block;
+import mindustry.world.Tile;
+import mindustry.world.blocks.ConstructBlock.ConstructBuild;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * Encodes the building of a tile in primitives, for compact storage.
+ * Only simple configs (numbers, positions, content and booleans) can be encoded, the others are dropped.
+ */
+public final class TileStates {
+
+    public static final byte CONFIG_NONE = 0;
+    public static final byte CONFIG_INT = 1;
+    public static final byte CONFIG_POINT = 2;
+    public static final byte CONFIG_CONTENT = 3;
+    public static final byte CONFIG_BOOLEAN = 4;
+
+    // Packed state layout, from the lowest bits: config value (32), config type (3), rotation (2), team (8), block (16)
+    private static final int CONFIG_TYPE_SHIFT = 32;
+    private static final int ROTATION_SHIFT = 35;
+    private static final int TEAM_SHIFT = 37;
+    private static final int BLOCK_SHIFT = 45;
+
+    private TileStates() {}
+
+    /**
+     * Returns the packed state of the building on the tile, or {@code 0} if there is none.
+     * Buildings under construction are treated as finished, and buildings being deconstructed as removed.
+     */
+    public static long capture(final Tile tile) {
+        final var build = tile.build;
+        if (build == null) {
+            return 0L;
+        }
+        var block = build.block;
+        var config = build.config();
+        if (build instanceof ConstructBuild cons) {
+            if (!cons.wasConstructing) {
+                return 0L;
+            }
+            block = cons.current;
+            config = cons.lastConfig;
+        }
+        return pack(block, build.team, build.rotation, config);
+    }
+
+    public static long pack(final Block block, final Team team, final int rotation, final @Nullable Object config) {
+        return ((long) block.id << BLOCK_SHIFT)
+                | ((long) (team.id & 0xFF) << TEAM_SHIFT)
+                | ((long) (rotation & 0x3) << ROTATION_SHIFT)
+                | ((long) getConfigType(config) << CONFIG_TYPE_SHIFT)
+                | (getConfigValue(config) & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Replaces the building on the tile with the packed state, syncing the change with the players.
+     */
+    public static void apply(final Tile tile, final long state) {
+        final var block = getBlock(state);
+        if (block == null || block.id == 0) {
+            if (tile.build != null) {
+                tile.build.tile.removeNet();
+            }
+            return;
+        }
+        if (capture(tile) == state) {
+            return;
+        }
+        if (tile.build != null && tile.build.tile != tile) {
+            tile.build.tile.removeNet();
+        }
+        tile.setNet(block, Team.get(getTeam(state)), getRotation(state));
+        final var config = getConfig(state);
+        if (tile.build != null && config != null) {
+            tile.build.configure(config);
+        }
+    }
+
+    public static @Nullable Block getBlock(final long state) {
+        return Vars.content.block((int) (state >>> BLOCK_SHIFT) & 0xFFFF);
+    }
+
+    public static int getTeam(final long state) {
+        return (int) (state >>> TEAM_SHIFT) & 0xFF;
+    }
+
+    public static int getRotation(final long state) {
+        return (int) (state >>> ROTATION_SHIFT) & 0x3;
+    }
+
+    public static @Nullable Object getConfig(final long state) {
+        return getConfig((byte) ((state >>> CONFIG_TYPE_SHIFT) & 0x7), (int) state);
+    }
+
+    public static byte getConfigType(final @Nullable Object config) {
+        if (config instanceof Integer) {
+            return CONFIG_INT;
+        } else if (config instanceof Point2) {
+            return CONFIG_POINT;
+        } else if (config instanceof UnlockableContent) {
+            return CONFIG_CONTENT;
+        } else if (config instanceof Boolean) {
+            return CONFIG_BOOLEAN;
+        } else {
+            return CONFIG_NONE;
+        }
+    }
+
+    public static int getConfigValue(final @Nullable Object config) {
+        if (config instanceof Integer value) {
+            return value;
+        } else if (config instanceof Point2 point) {
+            return point.pack();
+        } else if (config instanceof UnlockableContent content) {
+            return (content.getContentType().ordinal() << 16) | content.id;
+        } else if (config instanceof Boolean value) {
+            return value ? 1 : 0;
+        } else {
+            return 0;
+        }
+    }
+
+    public static @Nullable Object getConfig(final byte type, final int value) {
+        return switch (type) {
+            case CONFIG_INT -> value;
+            case CONFIG_POINT -> Point2.unpack(value);
+            case CONFIG_CONTENT -> Vars.content.getByID(ContentType.all[value >>> 16], value & 0xFFFF);
+            case CONFIG_BOOLEAN -> value == 1;
+            default -> null;
+        };
+    }
+}
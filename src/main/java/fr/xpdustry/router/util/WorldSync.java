@@ -0,0 +1,48 @@
+/*
+ * Router, a plugin for sharing schematics.
+ *
+ * Copyright (C) 2022 Xpdustry
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package fr.xpdustry.router.util;
+
+import mindustry.Vars;
+import mindustry.gen.Call;
+import mindustry.gen.Groups;
+import mindustry.gen.Player;
+
+/**
+ * Sends the whole world again to players, cheaper than syncing large changes tile by tile.
+ */
+public final class WorldSync {
+
+    private WorldSync() {}
+
+    public static void resync(final Player player) {
+        if (player.con == null || !player.con.isConnected()) {
+            return;
+        }
+        Call.worldDataBegin(player.con);
+        // The map is served from the WorldDataCache, like for the joining players
+        Vars.netServer.sendWorldData(player);
+    }
+
+    /**
+     * Resyncs all the players after a change of the world.
+     */
+    public static void resyncAll() {
+        Groups.player.each(WorldSync::resync);
+    }
+}